@@ -0,0 +1,80 @@
+package fa.training.blog.benchmark;
+
+import fa.training.blog.utils.IdGenerator;
+import fa.training.blog.utils.SnowflakeIdGenerator;
+import fa.training.blog.utils.UuidIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput into a table keyed by random UUID against time-ordered Snowflake IDs.
+ * Table keeps growing during the run, so random keys spread over the whole primary key index.
+ * Runs on in-memory H2 by default, give a MySQL URL to measure InnoDB:
+ * -Djmh.include="IdInsertBenchmark -p jdbcUrl=jdbc:mysql://localhost:3306/blog_bench -p user=root -p password=..."
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdInsertBenchmark {
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"uuid", "snowflake"})
+    private String generator;
+    @Param("jdbc:h2:mem:id_bench;MODE=MySQL")
+    private String jdbcUrl;
+    @Param("sa")
+    private String user;
+    @Param("sa")
+    private String password;
+
+    private IdGenerator idGenerator;
+    private Connection connection;
+    private PreparedStatement insert;
+    private String content;
+
+    @Setup
+    public void setup() throws SQLException {
+        idGenerator = "uuid".equals(generator) ? new UuidIdGenerator() : new SnowflakeIdGenerator(0, Clock.systemUTC());
+        connection = DriverManager.getConnection(jdbcUrl, user, password);
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS id_bench");
+            // Same primary key column as table post
+            statement.execute("CREATE TABLE id_bench (id VARCHAR(255) NOT NULL PRIMARY KEY, content VARCHAR(1000))");
+        }
+        connection.commit();
+        insert = connection.prepareStatement("INSERT INTO id_bench (id, content) VALUES (?, ?)");
+        content = "Content of post ".repeat(20);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE id_bench");
+        }
+        connection.commit();
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insertBatch() throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            insert.setString(1, idGenerator.nextId());
+            insert.setString(2, content);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+    }
+}
@@ -0,0 +1,76 @@
+package fa.training.blog.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fa.training.blog.dto.CommentDTO;
+import fa.training.blog.dto.PostDTO;
+import fa.training.blog.dto.UserDTO;
+import fa.training.blog.model.ResponseObject;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing a response: a ResponseObject with a page of posts or comments serialized to JSON bytes,
+ * with an ObjectMapper configured like the one of Spring Boot.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+    // Default page size of listings and a large page
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private ResponseObject posts;
+    private ResponseObject comments;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        UserDTO owner = new UserDTO("user", null, null, "De", "Mo", null);
+        List<PostDTO> postDTOS = new ArrayList<>();
+        List<CommentDTO> commentDTOS = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            PostDTO postDTO = new PostDTO();
+            postDTO.setId("Post ID " + i);
+            postDTO.setTitle("Title of post " + i);
+            postDTO.setContent("Content of post ".repeat(50));
+            postDTO.setCreateDate(LocalDateTime.now());
+            postDTO.setModifyDate(LocalDateTime.now());
+            postDTO.setView(1000);
+            postDTO.setOwner(owner);
+            postDTOS.add(postDTO);
+
+            CommentDTO commentDTO = new CommentDTO();
+            commentDTO.setId("Comment ID " + i);
+            commentDTO.setContent("Content of comment");
+            commentDTO.setCreateDate(LocalDateTime.now());
+            commentDTO.setModifyDate(LocalDateTime.now());
+            commentDTO.setOwner(owner);
+            commentDTO.setPost(postDTO);
+            commentDTOS.add(commentDTO);
+        }
+        posts = new ResponseObject(postDTOS);
+        comments = new ResponseObject(commentDTOS);
+    }
+
+    @Benchmark
+    public byte[] writePosts() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(posts);
+    }
+
+    @Benchmark
+    public byte[] writeComments() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(comments);
+    }
+}
@@ -0,0 +1,53 @@
+package fa.training.blog.benchmark;
+
+import fa.training.blog.security.JwtTokenUtil;
+import fa.training.blog.security.JwtUserDetails;
+import fa.training.blog.security.ValidatedToken;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of JWT work done on sign in and on every authenticated request: generate a token, validate a token
+ * already verified (cached) and validate a token never seen (signature checked).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+    private JwtTokenUtil jwtTokenUtil;
+    // Cache of verified tokens with no room (tokens are evicted right away), so every token is parsed and checked
+    private JwtTokenUtil uncachedJwtTokenUtil;
+    private JwtUserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtTokenUtil = new JwtTokenUtil(10_000);
+        uncachedJwtTokenUtil = new JwtTokenUtil(0);
+        userDetails = new JwtUserDetails("user", "{bcrypt}$2a$10$abcdefghijklmnopqrstuuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ",
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        token = jwtTokenUtil.generateToken(userDetails);
+        jwtTokenUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtTokenUtil.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public ValidatedToken validateCachedToken() {
+        return jwtTokenUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public ValidatedToken validateUncachedToken() {
+        return uncachedJwtTokenUtil.validateToken(token);
+    }
+}
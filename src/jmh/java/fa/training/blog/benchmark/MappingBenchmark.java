@@ -0,0 +1,92 @@
+package fa.training.blog.benchmark;
+
+import fa.training.blog.dto.CommentDTO;
+import fa.training.blog.dto.PostDTO;
+import fa.training.blog.dto.UserDTO;
+import fa.training.blog.entity.Comment;
+import fa.training.blog.entity.Post;
+import fa.training.blog.entity.User;
+import fa.training.blog.mapper.DtoMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mapping one entity to its DTO: DtoMapper against ModelMapper (used before DtoMapper).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+    private ModelMapper modelMapper;
+    private DtoMapper dtoMapper;
+    private User user;
+    private Post post;
+    private Comment comment;
+
+    @Setup
+    public void setup() {
+        modelMapper = new ModelMapper();
+        dtoMapper = new DtoMapper();
+
+        user = new User("user", "$2a$10$abcdefghijklmnopqrstuuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ", "user@demo.com",
+                "De", "Mo", "ROLE_USER");
+
+        post = new Post();
+        post.setId("Post ID");
+        post.setTitle("Title of post");
+        post.setContent("Content of post ".repeat(50));
+        post.setCreateDate(LocalDateTime.now());
+        post.setModifyDate(LocalDateTime.now());
+        post.setView(1000);
+        post.setOwner(user);
+
+        comment = new Comment();
+        comment.setId("Comment ID");
+        comment.setContent("Content of comment");
+        comment.setCreateDate(LocalDateTime.now());
+        comment.setModifyDate(LocalDateTime.now());
+        comment.setOwner(user);
+        comment.setPost(post);
+
+        // First call of ModelMapper builds its type maps, do it here so it is not measured
+        modelMapper.map(user, UserDTO.class);
+        modelMapper.map(post, PostDTO.class);
+        modelMapper.map(comment, CommentDTO.class);
+    }
+
+    @Benchmark
+    public UserDTO userModelMapper() {
+        return modelMapper.map(user, UserDTO.class);
+    }
+
+    @Benchmark
+    public UserDTO userDtoMapper() {
+        return dtoMapper.toUserDTO(user);
+    }
+
+    @Benchmark
+    public PostDTO postModelMapper() {
+        return modelMapper.map(post, PostDTO.class);
+    }
+
+    @Benchmark
+    public PostDTO postDtoMapper() {
+        return dtoMapper.toPostDTO(post);
+    }
+
+    @Benchmark
+    public CommentDTO commentModelMapper() {
+        return modelMapper.map(comment, CommentDTO.class);
+    }
+
+    @Benchmark
+    public CommentDTO commentDtoMapper() {
+        return dtoMapper.toCommentDTO(comment);
+    }
+}
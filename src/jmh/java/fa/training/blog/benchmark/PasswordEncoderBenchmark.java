@@ -0,0 +1,47 @@
+package fa.training.blog.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding a password (sign up, user import) and checking it (sign in) with each encoder
+ * of "blog.password.encoder", at the default and a higher BCrypt strength.
+ * This is CPU time of one hashing thread, see "blog.password.hashing-threads" for how many run at once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordEncoderBenchmark {
+    private static final String PASSWORD = "password123";
+
+    @Param({"bcrypt-10", "bcrypt-12", "argon2"})
+    private String encoder;
+
+    private PasswordEncoder passwordEncoder;
+    private String encodedPassword;
+
+    @Setup
+    public void setup() {
+        passwordEncoder = "argon2".equals(encoder)
+                ? new Argon2PasswordEncoder()
+                : new BCryptPasswordEncoder(Integer.parseInt(encoder.substring("bcrypt-".length())));
+        encodedPassword = passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches(PASSWORD, encodedPassword);
+    }
+}
@@ -0,0 +1,52 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+// Indexes for keyset (cursor) pagination of post and comment feeds, ordered by create date and id.
+// A database made by ddl-auto=update while these indexes were declared on the entities already has them, older
+// databases (baselined at V1) do not, so each index is only created if it is missing.
+// Java and not SQL: MySQL has no "CREATE INDEX IF NOT EXISTS".
+public class V3__add_feed_indexes extends BaseJavaMigration {
+    // Table, index name, columns
+    private static final String[][] INDEXES = {
+            {"post", "idx_post_create_date_id", "create_date, id"},
+            {"post", "idx_post_owner_create_date_id", "owner_username, create_date, id"},
+            {"comment", "idx_comment_create_date_id", "create_date, id"},
+            {"comment", "idx_comment_post_create_date_id", "post_id, create_date, id"},
+            {"comment", "idx_comment_owner_create_date_id", "owner_username, create_date, id"}
+    };
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        for (String[] index : INDEXES) {
+            if (!exists(connection, index[0], index[1])) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE INDEX " + index[1] + " ON " + index[0] + " (" + index[2] + ")");
+                }
+            }
+        }
+    }
+
+    private boolean exists(Connection connection, String table, String index) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        // Unquoted names are stored in upper case by H2, as written by MySQL
+        String tableName = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+        try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), null, tableName, false, true)) {
+            while (indexes.next()) {
+                if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,32 @@
+package fa.training.blog.configuration;
+
+import fa.training.blog.utils.IdGenerator;
+import fa.training.blog.utils.SnowflakeIdGenerator;
+import fa.training.blog.utils.UuidIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+public class IdGeneratorConfig {
+    @Value("${blog.id.generator:snowflake}")
+    private String generator;
+    @Value("${blog.id.worker-id:0}")
+    private int workerId;
+
+    @Bean
+    public IdGenerator idGenerator() {
+        // "snowflake": time-ordered IDs of 13 characters, each running instance needs its own "blog.id.worker-id".
+        // "uuid": random UUID as before.
+        switch (generator) {
+            case "snowflake":
+                return new SnowflakeIdGenerator(workerId, Clock.systemUTC());
+            case "uuid":
+                return new UuidIdGenerator();
+            default:
+                throw new IllegalArgumentException("Unknown ID generator: " + generator);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package fa.training.blog.configuration;
+
+import fa.training.blog.security.BoundedPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class PasswordEncoderConfig {
+    @Value("${blog.password.encoder:bcrypt}")
+    private String encoderId;
+    @Value("${blog.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+    @Value("${blog.password.hashing-threads:4}")
+    private int hashingThreads;
+    @Value("${blog.password.hashing-queue-capacity:100}")
+    private int hashingQueueCapacity;
+
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder() {
+        // New passwords are encoded with "blog.password.encoder" and saved with its id as prefix, ex: "{bcrypt}$2a$10$...".
+        // Passwords encoded before (no prefix) are still checked with BCrypt. When a user signs in with a password
+        // encoded by another algorithm or a lower BCrypt strength, it is encoded again and saved (see JwtUserDetailsService).
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("argon2", new Argon2PasswordEncoder());
+        DelegatingPasswordEncoder delegatingEncoder = new DelegatingPasswordEncoder(encoderId, encoders);
+        delegatingEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return new BoundedPasswordEncoder(delegatingEncoder, hashingThreads, hashingQueueCapacity);
+    }
+}
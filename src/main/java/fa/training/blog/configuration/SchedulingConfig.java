@@ -0,0 +1,11 @@
+package fa.training.blog.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+    // This configuration file has @EnableScheduling to run @Scheduled tasks,
+    // such as flushing post views counted in memory to database.
+}
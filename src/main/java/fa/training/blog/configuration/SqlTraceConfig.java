@@ -0,0 +1,62 @@
+package fa.training.blog.configuration;
+
+import fa.training.blog.trace.SqlTrace;
+import fa.training.blog.trace.SqlTraceListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+public class SqlTraceConfig implements WebMvcConfigurer {
+    // Static: post processor is created before other beans, so it can wrap the DataSource.
+    // It is created before placeholders of @Value are resolved, so the threshold is bound from Environment
+    @Bean
+    public static BeanPostProcessor sqlTraceDataSourcePostProcessor(Environment environment) {
+        Duration slowQueryThreshold = Binder.get(environment)
+                .bind("blog.sql-trace.slow-query-threshold", Duration.class)
+                .orElse(Duration.ofMillis(200));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Every statement goes through the proxy, which times it and calls the listener
+                if (bean instanceof DataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create((DataSource) bean)
+                            .name(beanName)
+                            .listener(new SqlTraceListener(slowQueryThreshold))
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Controller method of the request, logged with its slow queries
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                SqlTrace trace = SqlTrace.current();
+                if (trace != null && handler instanceof HandlerMethod) {
+                    HandlerMethod handlerMethod = (HandlerMethod) handler;
+                    trace.setHandler(handlerMethod.getBeanType().getSimpleName() + "."
+                            + handlerMethod.getMethod().getName());
+                }
+                return true;
+            }
+        });
+    }
+}
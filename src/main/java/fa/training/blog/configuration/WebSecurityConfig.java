@@ -5,6 +5,7 @@ import fa.training.blog.security.JwtAuthenticationEntryPoint;
 import fa.training.blog.security.JwtRequestFilter;
 import fa.training.blog.security.JwtUserDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -13,7 +14,7 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -25,7 +26,7 @@ public class WebSecurityConfig{
     @Autowired
     private JwtRequestFilter jwtRequestFilter;
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordEncoder passwordEncoder;
     @Autowired
     private JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
     @Autowired
@@ -42,8 +43,11 @@ public class WebSecurityConfig{
 
         http.authorizeRequests()
                 .antMatchers("/signin", "/signup", "/").permitAll()
-                .antMatchers(HttpMethod.GET, "/post", "/comment").permitAll()
+                // Served on the management port (management.server.port), which only monitoring should reach
+                .requestMatchers(EndpointRequest.to("health", "prometheus")).permitAll()
+                .antMatchers(HttpMethod.GET, "/post", "/comment", "/post/count", "/comment/count").permitAll()
                 .antMatchers("/user*", "/user/**").hasRole("ADMIN")
+                .antMatchers("/admin*", "/admin/**").hasRole("ADMIN")
                 .antMatchers("/post*", "/post/**").hasRole("ADMIN")
                 .antMatchers("/comment*", "/comment/**").hasAnyRole("USER", "ADMIN")
                 .anyRequest().authenticated()
@@ -0,0 +1,100 @@
+package fa.training.blog.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fa.training.blog.model.ResponseObject;
+import fa.training.blog.service.CacheStatisticsService;
+import fa.training.blog.service.ExportService;
+import fa.training.blog.service.IdMigrationService;
+import fa.training.blog.service.UserImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    @Autowired
+    private CacheStatisticsService cacheStatisticsService;
+    @Autowired
+    private IdMigrationService idMigrationService;
+    @Autowired
+    private UserImportService userImportService;
+    @Autowired
+    private ExportService exportService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @GetMapping("/cache")
+    public ResponseObject getCacheStatistics() {
+        return new ResponseObject(cacheStatisticsService.getStatistics());
+    }
+
+    @PostMapping("/migrate-ids")
+    public ResponseObject migrateLegacyIds() {
+        // Posts and comments created with random UUID get time-ordered IDs
+        return new ResponseObject(idMigrationService.migrateLegacyIds());
+    }
+
+    @PostMapping(value = "/users/import", consumes = {NDJSON, CSV})
+    public void importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body,
+                            HttpServletResponse response) throws IOException {
+        // Request body is read as it comes and response is written as it goes (one JSON object per line):
+        // rejected users and counts after each batch, then total counts in the last line
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        Writer writer = response.getWriter();
+        Consumer<ResponseObject> writeLine = line -> {
+            try {
+                writer.write(objectMapper.writeValueAsString(line));
+                writer.write('\n');
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(CSV));
+        Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8);
+        writeLine.accept(new ResponseObject(userImportService.importUsers(reader, csv, writeLine)));
+    }
+
+    @GetMapping("/export/posts")
+    public void exportPosts(HttpServletResponse response) throws IOException {
+        // Written as read from database (one post per line), whole export is never in memory
+        response.setContentType(NDJSON);
+        OutputStream output = new BufferedOutputStream(response.getOutputStream());
+        exportService.exportPosts(output);
+        output.flush();
+    }
+
+    @GetMapping("/export/comments")
+    public void exportComments(@RequestParam(required = false) String owner,
+                               @RequestParam(required = false) String post,
+                               @RequestParam(defaultValue = "false") boolean deleted,
+                               HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        OutputStream output = new BufferedOutputStream(response.getOutputStream());
+        exportService.exportComments(owner, post, deleted, output);
+        output.flush();
+    }
+}
@@ -1,8 +1,13 @@
 package fa.training.blog.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fa.training.blog.dto.CommentDTO;
+import fa.training.blog.model.MappedPage;
 import fa.training.blog.model.ResponseObject;
 import fa.training.blog.service.CommentService;
+import fa.training.blog.service.CountService;
+import fa.training.blog.utils.ConditionalGet;
+import fa.training.blog.utils.FieldSelector;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -12,87 +17,135 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/comment")
 public class CommentController {
     @Autowired
     private CommentService commentService;
+    @Autowired
+    private CountService countService;
+    @Autowired
+    private ObjectMapper objectMapper;
 
     @GetMapping
     public ResponseObject findComment(@RequestParam(required = false) String id,
                                       @RequestParam(required = false) String owner,
                                       @RequestParam(required = false) String post,
                                       @RequestParam(required = false) String createDate,
+                                      @RequestParam(required = false) String fields,
+                                      @RequestParam(required = false) String cursor,
                                       @RequestParam(defaultValue = "0") int page,
-                                      @RequestParam(defaultValue = "10") int size){
+                                      @RequestParam(defaultValue = "10") int size,
+                                      WebRequest request){
         Pageable pageable = PageRequest.of(page, size,
                                             Sort.by("post")
                                                     .and(Sort.by(Sort.Direction.DESC, "createDate")));
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        // Anonymous user and ROLE_USER only get comments not soft-deleted, ROLE_ADMIN gets soft-deleted ones too
+        boolean includeDeleted = isAdmin(authentication);
 
-        // If anonymous user get comment then return comment that not soft-deleted
-        if (authentication instanceof AnonymousAuthenticationToken) {
-            if (id != null) {
-                CommentDTO commentDTO = commentService.findCommentByIDAndDeleted(id);
-                if (commentDTO != null) {
-                    return new ResponseObject(commentDTO);
-                } else {
-                    return new ResponseObject("400", "Comment not found");
+        if (id != null) {
+            // Client already has this version of comment (ETag or Last-Modified): 304, comment is not loaded
+            boolean conditional = ConditionalGet.hasValidator(request);
+            if (conditional) {
+                LocalDateTime modifyDate = commentService.findCommentModifyDate(id, includeDeleted);
+                if (modifyDate != null && ConditionalGet.checkNotModified(request, id, modifyDate)) {
+                    return null;
                 }
-            } else if (owner != null) {
-                return new ResponseObject(commentService.findCommentByOwnerAndDeleted(owner, pageable));
-            } else if (post != null) {
-                return new ResponseObject(commentService.findCommentByPostAndDeleted(post, pageable));
-            } else if (createDate != null) {
-                LocalDate create = LocalDate.parse(createDate);
-                return new ResponseObject(commentService.findCommentByCreateDateAndDeleted(create, pageable));
-            } else {
-                return new ResponseObject(commentService.findCommentByDeleted(pageable));
             }
-        }
-        // else if an authenticated user signed in:
-        // if ROLE_ADMIN then return comments include soft-deleted, else just return not soft-deleted comments
-        Optional<? extends GrantedAuthority> authority = authentication.getAuthorities().stream().findFirst();
-        boolean isAdmin = "ROLE_ADMIN".equals(authority.get().getAuthority());
-        if (id != null) {
             CommentDTO commentDTO;
-            if (isAdmin) {
+            if (includeDeleted) {
                 commentDTO = commentService.findCommentByID(id);
             } else {
                 commentDTO = commentService.findCommentByIDAndDeleted(id);
             }
             if (commentDTO != null) {
+                if (!conditional) {
+                    // Only sets ETag and Last-Modified for the next request, from the comment loaded
+                    ConditionalGet.checkNotModified(request, id, commentDTO.getModifyDate());
+                }
                 return new ResponseObject(commentDTO);
             }
             return new ResponseObject("400", "Comment not found");
-        } else if (owner != null) {
-            if (isAdmin) {
-                return new ResponseObject(commentService.findCommentByOwner(owner, pageable));
+        }
+
+        Set<String> selectedFields = FieldSelector.parse(fields);
+        // Cursor (keyset pagination) mode: newest comments first, next page is got with "nextCursor" of response
+        if (cursor != null) {
+            if (createDate != null) {
+                return new ResponseObject("406", "Cursor can only be used to find all comment or comment by owner or post");
             }
-            return new ResponseObject(commentService.findCommentByOwnerAndDeleted(owner, pageable));
-        } else if (post != null) {
-            if (isAdmin) {
-                return new ResponseObject(commentService.findCommentByPost(post, pageable));
+            MappedPage<CommentDTO> feed;
+            if (owner != null) {
+                feed = commentService.findCommentFeedByOwner(owner, cursor, includeDeleted, size);
+            } else if (post != null) {
+                feed = commentService.findCommentFeedByPost(post, cursor, includeDeleted, size);
+            } else {
+                feed = commentService.findCommentFeed(cursor, includeDeleted, size);
+            }
+            if (ConditionalGet.checkNotModified(request, feed)) {
+                return null;
+            }
+            return new ResponseObject(FieldSelector.select(objectMapper, feed.getContent(), selectedFields),
+                                      feed.getNextCursor());
+        }
+        // Comments are mapped to DTO only if client does not have this page
+        MappedPage<CommentDTO> comments;
+        // If client selects fields, comments are loaded as summary (only columns shown in listing) and trimmed
+        if (FieldSelector.isSummary(selectedFields, FieldSelector.COMMENT_SUMMARY_FIELDS)) {
+            if (owner != null) {
+                comments = commentService.findCommentSummaryByOwner(owner, includeDeleted, pageable);
+            } else if (post != null) {
+                comments = commentService.findCommentSummaryByPost(post, includeDeleted, pageable);
+            } else if (createDate != null) {
+                LocalDate create = LocalDate.parse(createDate);
+                comments = commentService.findCommentSummaryByCreateDate(create, includeDeleted, pageable);
+            } else {
+                comments = commentService.findAllCommentSummary(includeDeleted, pageable);
             }
-            return new ResponseObject(commentService.findCommentByPostAndDeleted(post, pageable));
+            if (ConditionalGet.checkNotModified(request, comments)) {
+                return null;
+            }
+            return new ResponseObject(FieldSelector.select(objectMapper, comments.getContent(), selectedFields));
+        }
+
+        if (owner != null) {
+            comments = includeDeleted ? commentService.findCommentByOwner(owner, pageable)
+                                      : commentService.findCommentByOwnerAndDeleted(owner, pageable);
+        } else if (post != null) {
+            comments = includeDeleted ? commentService.findCommentByPost(post, pageable)
+                                      : commentService.findCommentByPostAndDeleted(post, pageable);
         } else if (createDate != null) {
             LocalDate create = LocalDate.parse(createDate);
-            if (isAdmin) {
-                return new ResponseObject(commentService.findCommentByCreateDate(create, pageable));
-            }
-            return new ResponseObject(commentService.findCommentByCreateDateAndDeleted(create, pageable));
+            comments = includeDeleted ? commentService.findCommentByCreateDate(create, pageable)
+                                      : commentService.findCommentByCreateDateAndDeleted(create, pageable);
         } else {
-            if (isAdmin) {
-                return new ResponseObject(commentService.findAllComment(pageable));
-            }
-            return new ResponseObject(commentService.findCommentByDeleted(pageable));
+            // Only listing all comments tells if there is a next page (not counted, one more row is read)
+            comments = includeDeleted ? commentService.findAllComment(pageable)
+                                      : commentService.findCommentByDeleted(pageable);
         }
+        // Client already has this page (same comments, none modified): 304, page is not mapped nor serialized
+        if (ConditionalGet.checkNotModified(request, comments)) {
+            return null;
+        }
+        return new ResponseObject(comments.getContent(), comments.getHasNext());
+    }
+
+    @GetMapping("/count")
+    public ResponseObject countComment() {
+        // Approximate total (cached), soft-deleted comments are only counted for admin
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return new ResponseObject(countService.countComment(isAdmin(authentication)));
     }
 
     @PostMapping
@@ -109,6 +162,14 @@ public class CommentController {
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseObject createComments(@RequestBody List<CommentDTO> commentDTOS) {
+        // Each comment is validated in service, result of each one is in the same order as request
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication.getName();
+        return new ResponseObject(commentService.createComments(commentDTOS, username));
+    }
+
     @PutMapping
     public ResponseObject editComment(@RequestBody @Valid CommentDTO commentDTO, BindingResult result) {
         if (!result.hasErrors()) {
@@ -131,4 +192,12 @@ public class CommentController {
         boolean isAdmin = "ROLE_ADMIN".equals(authority.get().getAuthority());
         return new ResponseObject(commentService.deleteComment(id, username, isAdmin));
     }
+
+    private boolean isAdmin(Authentication authentication) {
+        if (authentication instanceof AnonymousAuthenticationToken) {
+            return false;
+        }
+        Optional<? extends GrantedAuthority> authority = authentication.getAuthorities().stream().findFirst();
+        return authority.isPresent() && "ROLE_ADMIN".equals(authority.get().getAuthority());
+    }
 }
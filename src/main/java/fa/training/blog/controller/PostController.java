@@ -1,51 +1,135 @@
 package fa.training.blog.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fa.training.blog.dto.PostDTO;
+import fa.training.blog.model.MappedPage;
 import fa.training.blog.model.ResponseObject;
+import fa.training.blog.service.CountService;
 import fa.training.blog.service.PostService;
+import fa.training.blog.utils.ConditionalGet;
+import fa.training.blog.utils.FieldSelector;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.BindingResult;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/post")
 public class PostController {
     @Autowired
     private PostService postService;
+    @Autowired
+    private CountService countService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @GetMapping(params = "id")
+    public ResponseEntity<?> findPostByID(@RequestParam String id, WebRequest request) {
+        // Client already has this version of post (ETag or Last-Modified): 304, post is not loaded nor serialized.
+        // The view is still counted, client keeps the view count it has (not part of ETag).
+        boolean conditional = ConditionalGet.hasValidator(request);
+        if (conditional) {
+            LocalDateTime modifyDate = postService.findPostModifyDate(id);
+            if (modifyDate != null && ConditionalGet.checkNotModified(request, id, modifyDate)) {
+                postService.recordPostView(id);
+                return null;
+            }
+        }
+        // Response is already serialized (and cached for hot posts), it is written as it is
+        byte[] response = postService.findPostResponseByID(id);
+        if (response == null) {
+            return ResponseEntity.ok(new ResponseObject("400", "Post not found"));
+        }
+        if (!conditional) {
+            // Only sets ETag and Last-Modified for the next request, modify date comes with the response cached
+            LocalDateTime modifyDate = postService.findPostModifyDate(id);
+            if (modifyDate != null) {
+                ConditionalGet.checkNotModified(request, id, modifyDate);
+            }
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(response);
+    }
 
     @GetMapping
-    public ResponseObject findPost(@RequestParam(required = false) String id,
-                                   @RequestParam(required = false) String owner,
+    public ResponseObject findPost(@RequestParam(required = false) String owner,
                                    @RequestParam(required = false) String createDate,
                                    @RequestParam(required = false) String title,
+                                   @RequestParam(required = false) String search,
+                                   @RequestParam(required = false) String fields,
+                                   @RequestParam(required = false) String cursor,
                                    @RequestParam(defaultValue = "0") int page,
-                                   @RequestParam(defaultValue = "10") int size){
+                                   @RequestParam(defaultValue = "10") int size,
+                                   WebRequest request){
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createDate"));
-        if (id != null){
-            PostDTO post = postService.findPostByID(id);
-            if (post != null) {
-                return new ResponseObject(post);
+        Set<String> selectedFields = FieldSelector.parse(fields);
+        // Cursor (keyset pagination) mode: page is ignored, next page is got with "nextCursor" of response
+        if (cursor != null) {
+            if (createDate != null || title != null || search != null) {
+                return new ResponseObject("406", "Cursor can only be used to find all post or post by owner");
+            }
+            MappedPage<PostDTO> feed;
+            if (owner != null) {
+                feed = postService.findPostFeedByOwner(owner, cursor, size);
             } else {
-                return new ResponseObject("400", "Post not found");
+                feed = postService.findPostFeed(cursor, size);
+            }
+            if (ConditionalGet.checkNotModified(request, feed)) {
+                return null;
             }
+            return new ResponseObject(FieldSelector.select(objectMapper, feed.getContent(), selectedFields),
+                                      feed.getNextCursor());
+        }
+        // If client just asks for fields of summary (e.g. fields=id,title,owner) then do not load content of posts
+        boolean summary = FieldSelector.isSummary(selectedFields, FieldSelector.POST_SUMMARY_FIELDS);
+        // Posts are mapped to DTO only if client does not have this page
+        MappedPage<PostDTO> posts;
+        if (search != null) {
+            // Ranked full-text search on title and content
+            posts = postService.searchPost(search, pageable);
         } else if (owner != null) {
-            return new ResponseObject(postService.findPostByOwner(owner, pageable));
+            posts = summary ? postService.findPostSummaryByOwner(owner, pageable)
+                            : postService.findPostByOwner(owner, pageable);
         } else if (createDate != null) {
             LocalDate create = LocalDate.parse(createDate);
-            return new ResponseObject(postService.findPostByCreateDate(create, pageable));
+            posts = summary ? postService.findPostSummaryByCreateDate(create, pageable)
+                            : postService.findPostByCreateDate(create, pageable);
         } else if (title != null) {
-            return new ResponseObject(postService.findPostByTitle(title, pageable));
+            posts = summary ? postService.findPostSummaryByTitle(title, pageable)
+                            : postService.findPostByTitle(title, pageable);
         } else {
-            return new ResponseObject(postService.findAllPost(pageable));
+            // Only listing all posts tells if there is a next page (not counted, one more row is read)
+            posts = summary ? postService.findAllPostSummary(pageable)
+                            : postService.findAllPost(pageable);
+        }
+        // Client already has this page (same posts, none modified): 304, page is not mapped nor serialized
+        if (ConditionalGet.checkNotModified(request, posts)) {
+            return null;
         }
+        return new ResponseObject(FieldSelector.select(objectMapper, posts.getContent(), selectedFields),
+                                  posts.getHasNext());
+    }
+
+    @GetMapping("/count")
+    public ResponseObject countPost() {
+        // Approximate total (cached), list of posts does not count to stay fast
+        return new ResponseObject(countService.countPost());
+    }
+
+    @PostMapping("/reindex")
+    public ResponseObject rebuildSearchIndex() {
+        return new ResponseObject(postService.rebuildSearchIndex());
     }
 
     @PostMapping
@@ -2,10 +2,12 @@ package fa.training.blog.controller;
 
 import fa.training.blog.dto.UserDTO;
 import fa.training.blog.model.ResponseObject;
+import fa.training.blog.service.CountService;
 import fa.training.blog.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
@@ -18,6 +20,8 @@ import java.util.List;
 public class UserController {
     @Autowired
     private UserService userService;
+    @Autowired
+    private CountService countService;
 
     @GetMapping
     public ResponseObject findUser(@RequestParam(required = false) String username,
@@ -44,12 +48,19 @@ public class UserController {
             List<UserDTO> users = userService.findUserByLastName(lastName, pageable);
             return new ResponseObject(users);
         } else {
-            List<UserDTO> users = userService.findAllUser(pageable);
-            return new ResponseObject(users);
+            // Not counted, hasNext tells the last page
+            Slice<UserDTO> users = userService.findAllUser(pageable);
+            return new ResponseObject(users.getContent(), users.hasNext());
         }
 
     }
 
+    @GetMapping("/count")
+    public ResponseObject countUser() {
+        // Approximate total (cached), list of users does not count to stay fast
+        return new ResponseObject(countService.countUser());
+    }
+
     @PutMapping
     public ResponseObject editUser(@RequestBody @Valid UserDTO userDTO, BindingResult result){
         if(!result.hasErrors()){
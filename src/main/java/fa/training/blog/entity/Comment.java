@@ -1,5 +1,7 @@
 package fa.training.blog.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -9,6 +11,8 @@ import javax.validation.constraints.NotBlank;
 import java.time.LocalDateTime;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "comment")
 @EntityListeners(AuditingEntityListener.class)
 public class Comment {
     @Id
@@ -22,9 +26,10 @@ public class Comment {
     @LastModifiedDate
     private LocalDateTime modifyDate;
     private boolean deleted;
-    @ManyToOne
+    // Lazy so owner and post are only loaded by repository methods asking for them (@EntityGraph or join fetch)
+    @ManyToOne(fetch = FetchType.LAZY)
     private User owner;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Post post;
 
     public String getId() {
@@ -1,6 +1,8 @@
 package fa.training.blog.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -10,6 +12,8 @@ import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "post")
 @EntityListeners(AuditingEntityListener.class)
 public class Post {
     @Id
@@ -23,8 +27,11 @@ public class Post {
     private LocalDateTime createDate;
     @Column(name = "modify_date")
     private LocalDateTime modifyDate;
+    // Only ViewCountService updates view (with "view = view + ?"), so saving a post never overwrites counted views
+    @Column(updatable = false)
     private int view;
-    @ManyToOne
+    // Lazy so owner is only loaded by repository methods asking for it (@EntityGraph or join fetch)
+    @ManyToOne(fetch = FetchType.LAZY)
     private User owner;
     @OneToMany(mappedBy = "post", cascade = CascadeType.REMOVE)
     @JsonIgnore
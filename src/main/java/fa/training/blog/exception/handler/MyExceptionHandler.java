@@ -2,6 +2,7 @@ package fa.training.blog.exception.handler;
 
 import fa.training.blog.exception.MyException;
 import fa.training.blog.model.ResponseObject;
+import io.micrometer.core.instrument.Metrics;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -12,33 +13,41 @@ import java.time.format.DateTimeParseException;
 
 @ControllerAdvice
 public class MyExceptionHandler {
+    public static final String ERROR_METRIC = "blog.errors";
+
     @ExceptionHandler(MyException.class)
     @ResponseBody
     public ResponseObject handleMyException(MyException e){
-        return new ResponseObject(e.getCode(), e.getMessage());
+        return countError(new ResponseObject(e.getCode(), e.getMessage()));
     }
 
     @ExceptionHandler(AuthenticationException.class)
     @ResponseBody
     public ResponseObject handleAuthenticationException() {
-        return new ResponseObject("401", "Authentication fail");
+        return countError(new ResponseObject("401", "Authentication fail"));
     }
 
     @ExceptionHandler(AccessDeniedException.class)
     @ResponseBody
     public ResponseObject handleAccessDeniedException() {
-        return new ResponseObject("403", "Access denied");
+        return countError(new ResponseObject("403", "Access denied"));
     }
 
     @ExceptionHandler(DateTimeParseException.class)
     @ResponseBody
     public ResponseObject handleDateTimeParseException() {
-        return new ResponseObject("402", "Cannot parse date from string. Make sure date entered in ISO format: YYYY-MM-DD");
+        return countError(new ResponseObject("402", "Cannot parse date from string. Make sure date entered in ISO format: YYYY-MM-DD"));
     }
 
     @ExceptionHandler(Exception.class)
     @ResponseBody
     public ResponseObject handleException(Exception e){
-        return new ResponseObject("407", e.getMessage());
+        return countError(new ResponseObject("407", e.getMessage()));
+    }
+
+    private ResponseObject countError(ResponseObject response) {
+        // Global registry, which Spring Boot adds its registry to (handler is also created in web test slices)
+        Metrics.counter(ERROR_METRIC, "code", response.getCode()).increment();
+        return response;
     }
 }
@@ -0,0 +1,164 @@
+package fa.training.blog.mapper;
+
+import fa.training.blog.dto.CommentDTO;
+import fa.training.blog.dto.PostDTO;
+import fa.training.blog.dto.UserDTO;
+import fa.training.blog.entity.Comment;
+import fa.training.blog.entity.Post;
+import fa.training.blog.entity.User;
+import fa.training.blog.repository.projection.CommentSummary;
+import fa.training.blog.repository.projection.PostSummary;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DtoMapper {
+    // Map entities to DTOs and back with plain getters and setters (no reflection like ModelMapper).
+    // Nested owner and post only get the fields shown in JSON (see @JsonIgnoreProperties and @JsonIncludeProperties
+    // in PostDTO and CommentDTO), their id is enough to save the entity back.
+
+    public UserDTO toUserDTO(User user) {
+        if (user == null) {
+            return null;
+        }
+        return new UserDTO(user.getUsername(), user.getPassword(), user.getEmail(),
+                user.getFirstName(), user.getLastName(), user.getRole());
+    }
+
+    public User toUser(UserDTO userDTO) {
+        if (userDTO == null) {
+            return null;
+        }
+        return new User(userDTO.getUsername(), userDTO.getPassword(), userDTO.getEmail(),
+                userDTO.getFirstName(), userDTO.getLastName(), userDTO.getRole());
+    }
+
+    public PostDTO toPostDTO(Post post) {
+        if (post == null) {
+            return null;
+        }
+        PostDTO postDTO = new PostDTO();
+        postDTO.setId(post.getId());
+        postDTO.setTitle(post.getTitle());
+        postDTO.setContent(post.getContent());
+        postDTO.setCreateDate(post.getCreateDate());
+        postDTO.setModifyDate(post.getModifyDate());
+        postDTO.setView(post.getView());
+        postDTO.setOwner(toOwnerDTO(post.getOwner()));
+        return postDTO;
+    }
+
+    public Post toPost(PostDTO postDTO) {
+        if (postDTO == null) {
+            return null;
+        }
+        Post post = new Post();
+        post.setId(postDTO.getId());
+        post.setTitle(postDTO.getTitle());
+        post.setContent(postDTO.getContent());
+        post.setCreateDate(postDTO.getCreateDate());
+        post.setModifyDate(postDTO.getModifyDate());
+        post.setView(postDTO.getView());
+        post.setOwner(toOwner(postDTO.getOwner()));
+        return post;
+    }
+
+    public CommentDTO toCommentDTO(Comment comment) {
+        if (comment == null) {
+            return null;
+        }
+        CommentDTO commentDTO = new CommentDTO();
+        commentDTO.setId(comment.getId());
+        commentDTO.setContent(comment.getContent());
+        commentDTO.setCreateDate(comment.getCreateDate());
+        commentDTO.setModifyDate(comment.getModifyDate());
+        commentDTO.setDeleted(comment.isDeleted());
+        commentDTO.setOwner(toOwnerDTO(comment.getOwner()));
+        Post post = comment.getPost();
+        if (post != null) {
+            PostDTO postDTO = new PostDTO();
+            postDTO.setId(post.getId());
+            postDTO.setTitle(post.getTitle());
+            commentDTO.setPost(postDTO);
+        }
+        return commentDTO;
+    }
+
+    public Comment toComment(CommentDTO commentDTO) {
+        if (commentDTO == null) {
+            return null;
+        }
+        Comment comment = new Comment();
+        comment.setId(commentDTO.getId());
+        comment.setContent(commentDTO.getContent());
+        comment.setCreateDate(commentDTO.getCreateDate());
+        comment.setModifyDate(commentDTO.getModifyDate());
+        comment.setDeleted(commentDTO.isDeleted());
+        comment.setOwner(toOwner(commentDTO.getOwner()));
+        PostDTO postDTO = commentDTO.getPost();
+        if (postDTO != null) {
+            Post post = new Post();
+            post.setId(postDTO.getId());
+            post.setTitle(postDTO.getTitle());
+            comment.setPost(post);
+        }
+        return comment;
+    }
+
+    public PostDTO toPostDTO(PostSummary summary) {
+        if (summary == null) {
+            return null;
+        }
+        PostDTO postDTO = new PostDTO();
+        postDTO.setId(summary.getId());
+        postDTO.setTitle(summary.getTitle());
+        postDTO.setCreateDate(summary.getCreateDate());
+        postDTO.setModifyDate(summary.getModifyDate());
+        postDTO.setView(summary.getView());
+        postDTO.setOwner(toOwnerDTO(summary.getOwnerUsername(), summary.getOwnerFirstName(), summary.getOwnerLastName()));
+        return postDTO;
+    }
+
+    public CommentDTO toCommentDTO(CommentSummary summary) {
+        if (summary == null) {
+            return null;
+        }
+        CommentDTO commentDTO = new CommentDTO();
+        commentDTO.setId(summary.getId());
+        commentDTO.setContent(summary.getContent());
+        commentDTO.setCreateDate(summary.getCreateDate());
+        commentDTO.setModifyDate(summary.getModifyDate());
+        commentDTO.setDeleted(summary.isDeleted());
+        commentDTO.setOwner(toOwnerDTO(summary.getOwnerUsername(), summary.getOwnerFirstName(), summary.getOwnerLastName()));
+        PostDTO postDTO = new PostDTO();
+        postDTO.setId(summary.getPostId());
+        postDTO.setTitle(summary.getPostTitle());
+        commentDTO.setPost(postDTO);
+        return commentDTO;
+    }
+
+    private UserDTO toOwnerDTO(User owner) {
+        if (owner == null) {
+            return null;
+        }
+        return toOwnerDTO(owner.getUsername(), owner.getFirstName(), owner.getLastName());
+    }
+
+    private UserDTO toOwnerDTO(String username, String firstName, String lastName) {
+        UserDTO ownerDTO = new UserDTO();
+        ownerDTO.setUsername(username);
+        ownerDTO.setFirstName(firstName);
+        ownerDTO.setLastName(lastName);
+        return ownerDTO;
+    }
+
+    private User toOwner(UserDTO ownerDTO) {
+        if (ownerDTO == null) {
+            return null;
+        }
+        User owner = new User();
+        owner.setUsername(ownerDTO.getUsername());
+        owner.setFirstName(ownerDTO.getFirstName());
+        owner.setLastName(ownerDTO.getLastName());
+        return owner;
+    }
+}
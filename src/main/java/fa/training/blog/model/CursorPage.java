@@ -0,0 +1,48 @@
+package fa.training.blog.model;
+
+import fa.training.blog.utils.FeedCursor;
+
+import java.util.List;
+import java.util.function.Function;
+
+public class CursorPage<T> {
+    private List<T> content;
+    // Cursor to get the next page, null if this is the last page
+    private String nextCursor;
+
+    public CursorPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Make a page from rows found with limit size + 1, the extra row only tells there is a next page
+     * @param rows found from database, at most size + 1
+     * @param size of page
+     * @param positionOf get position (create date and id) of a row
+     * @return page of at most size rows, with cursor of the last row if there is a next page
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, FeedCursor> positionOf) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> content = rows.subList(0, size);
+        return new CursorPage<>(content, positionOf.apply(content.get(size - 1)).encode());
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,73 @@
+package fa.training.blog.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Page of rows found in database, mapped to DTO only when its content is read. Ids and modify dates are taken from
+// the rows first, so a conditional GET (ETag, Last-Modified) is answered with 304 without mapping the page.
+public class MappedPage<T> {
+    private final List<String> ids;
+    private final List<LocalDateTime> modifyDates;
+    private final Supplier<List<T>> mapping;
+    private List<T> content;
+    // Only when listing all posts or comments (a Slice, not counted), to tell the last page
+    private Boolean hasNext;
+    // Only in cursor (keyset) pagination mode, null if this is the last page
+    private String nextCursor;
+
+    private MappedPage(List<String> ids, List<LocalDateTime> modifyDates, Supplier<List<T>> mapping) {
+        this.ids = ids;
+        this.modifyDates = modifyDates;
+        this.mapping = mapping;
+    }
+
+    /**
+     * Make a page from rows found, rows are mapped at the first call of getContent()
+     * @param rows found from database (entities or projections)
+     * @param idOf get id of a row
+     * @param modifyDateOf get modify date of a row
+     * @param mapper map a row to DTO
+     * @return page of rows not mapped yet
+     */
+    public static <S, T> MappedPage<T> of(List<S> rows, Function<S, String> idOf,
+                                          Function<S, LocalDateTime> modifyDateOf, Function<S, T> mapper) {
+        List<String> ids = rows.stream().map(idOf).collect(Collectors.toList());
+        List<LocalDateTime> modifyDates = rows.stream().map(modifyDateOf).collect(Collectors.toList());
+        return new MappedPage<>(ids, modifyDates,
+                () -> rows.stream().map(mapper).collect(Collectors.toList()));
+    }
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public List<LocalDateTime> getModifyDates() {
+        return modifyDates;
+    }
+
+    public List<T> getContent() {
+        if (content == null) {
+            content = mapping.get();
+        }
+        return content;
+    }
+
+    public Boolean getHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(Boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -1,9 +1,17 @@
 package fa.training.blog.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class ResponseObject {
     private String code;
     private String message;
     private Object data;
+    // Only in cursor (keyset) pagination mode, to get the next page
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+    // Only when listing all posts, comments or users (a Slice, not counted), to tell the last page
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean hasNext;
 
     public ResponseObject(String code, String message) {
         this.code = code;
@@ -16,6 +24,16 @@ public class ResponseObject {
         this.data = data;
     }
 
+    public ResponseObject(Object data, String nextCursor) {
+        this(data);
+        this.nextCursor = nextCursor;
+    }
+
+    public ResponseObject(Object data, Boolean hasNext) {
+        this(data);
+        this.hasNext = hasNext;
+    }
+
     public String getCode() {
         return code;
     }
@@ -39,4 +57,20 @@ public class ResponseObject {
     public void setData(Object data) {
         this.data = data;
     }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Boolean getHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(Boolean hasNext) {
+        this.hasNext = hasNext;
+    }
 }
@@ -0,0 +1,12 @@
+package fa.training.blog.repository;
+
+import java.util.List;
+
+// Added to a repository by extending it, implementation is shared by all repositories
+public interface BatchRepository<T> {
+    /**
+     * Insert new entities (with ID already set) in one transaction, sent to database in JDBC batches
+     * @param entities entities to insert
+     */
+    void persistAll(List<T> entities);
+}
@@ -0,0 +1,32 @@
+package fa.training.blog.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+// Fragment of repositories extending BatchRepository (found by the "Impl" suffix)
+public class BatchRepositoryImpl<T> implements BatchRepository<T> {
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    @Transactional
+    public void persistAll(List<T> entities) {
+        for (int i = 0; i < entities.size(); i++) {
+            // persist() and not save(): ID is already set, so save() would merge and select every entity first
+            entityManager.persist(entities.get(i));
+            if ((i + 1) % batchSize == 0) {
+                // One JDBC batch per "batchSize" entities, then keep persistence context small
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
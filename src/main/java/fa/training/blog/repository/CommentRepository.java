@@ -3,19 +3,133 @@ package fa.training.blog.repository;
 import fa.training.blog.entity.Comment;
 import fa.training.blog.entity.Post;
 import fa.training.blog.entity.User;
+import fa.training.blog.repository.projection.CommentSummary;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface CommentRepository extends JpaRepository<Comment, String> {
+public interface CommentRepository extends JpaRepository<Comment, String>, BatchRepository<Comment> {
+    // Select only columns of CommentSummary, so content of post and password of owner are not loaded
+    String SELECT_SUMMARY = "select c.id as id, c.content as content, c.createDate as createDate, "
+            + "c.modifyDate as modifyDate, c.deleted as deleted, o.username as ownerUsername, "
+            + "o.firstName as ownerFirstName, o.lastName as ownerLastName, p.id as postId, p.title as postTitle "
+            + "from Comment c join c.owner o join c.post p";
+    // Not soft-deleted comments are always included, soft-deleted ones only when "deleted" contains true
+    String WHERE_DELETED_IN = " where c.deleted in :deleted";
+    // Keyset pagination: comments right after the cursor (create date and id of the last comment of previous page).
+    // "createDate <=" is implied by the rest but lets database read a range of the create date index.
+    String AFTER_CURSOR = " and c.createDate <= :createDate and (c.createDate < :createDate or c.id < :id)";
+    String FEED_ORDER = " order by c.createDate desc, c.id desc";
+
+    // Owner and post are lazy, finders below load them in the same query with @EntityGraph
+    // (no extra query per owner or post). Owner of post is not loaded, comment only shows id and title of post.
+    @Override
+    @EntityGraph(attributePaths = {"owner", "post"})
+    Optional<Comment> findById(String id);
+
+    // All comments, soft-deleted too (admin listing), with owner and post of each
+    @EntityGraph(attributePaths = {"owner", "post"})
+    Slice<Comment> findAllBy(Pageable pageable);
+
+    long countByDeleted(boolean deleted);
+
+    @EntityGraph(attributePaths = {"owner", "post"})
     List<Comment> findByOwner(User owner, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"owner", "post"})
     List<Comment> findByPost(Post post, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"owner", "post"})
     List<Comment> findByCreateDateBetween(LocalDateTime start, LocalDateTime end, Pageable pageable);
+
+    // Result kept in query cache until comment table changes, comment itself comes from second-level cache
+    @EntityGraph(attributePaths = {"owner", "post"})
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Comment findByIdAndDeleted(String id, boolean deleted);
+
+    // Only modify date, to answer conditional GET (ETag, Last-Modified) without loading comment
+    @Query("select c.modifyDate from Comment c where c.id = :id and c.deleted in :deleted")
+    Optional<LocalDateTime> findModifyDateByIdAndDeletedIn(@Param("id") String id,
+                                                           @Param("deleted") List<Boolean> deleted);
+
+    @EntityGraph(attributePaths = {"owner", "post"})
     List<Comment> findByOwnerAndDeleted(User owner, boolean deleted, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"owner", "post"})
     List<Comment> findByPostAndDeleted(Post post, boolean deleted, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"owner", "post"})
     List<Comment> findByDeletedAndCreateDateBetween(boolean deleted, LocalDateTime start, LocalDateTime end, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"owner", "post"})
     List<Comment> findByDeleted(boolean deleted, Pageable pageable);
+
+    @Query(SELECT_SUMMARY + WHERE_DELETED_IN)
+    List<CommentSummary> findSummaryByDeletedIn(@Param("deleted") List<Boolean> deleted, Pageable pageable);
+
+    @Query(SELECT_SUMMARY + WHERE_DELETED_IN + " and o.username = :username")
+    List<CommentSummary> findSummaryByOwnerAndDeletedIn(@Param("username") String username,
+                                                        @Param("deleted") List<Boolean> deleted, Pageable pageable);
+
+    @Query(SELECT_SUMMARY + WHERE_DELETED_IN + " and p.id = :postId")
+    List<CommentSummary> findSummaryByPostAndDeletedIn(@Param("postId") String postId,
+                                                       @Param("deleted") List<Boolean> deleted, Pageable pageable);
+
+    @Query(SELECT_SUMMARY + WHERE_DELETED_IN + " and c.createDate between :start and :end")
+    List<CommentSummary> findSummaryByCreateDateBetweenAndDeletedIn(@Param("start") LocalDateTime start,
+                                                                    @Param("end") LocalDateTime end,
+                                                                    @Param("deleted") List<Boolean> deleted,
+                                                                    Pageable pageable);
+
+    @Query(SELECT_SUMMARY + WHERE_DELETED_IN + AFTER_CURSOR + FEED_ORDER)
+    List<CommentSummary> findSummaryFeed(@Param("deleted") List<Boolean> deleted,
+                                         @Param("createDate") LocalDateTime createDate, @Param("id") String id,
+                                         Pageable pageable);
+
+    @Query(SELECT_SUMMARY + WHERE_DELETED_IN + " and o.username = :username" + AFTER_CURSOR + FEED_ORDER)
+    List<CommentSummary> findSummaryFeedByOwner(@Param("username") String username,
+                                                @Param("deleted") List<Boolean> deleted,
+                                                @Param("createDate") LocalDateTime createDate, @Param("id") String id,
+                                                Pageable pageable);
+
+    @Query(SELECT_SUMMARY + WHERE_DELETED_IN + " and p.id = :postId" + AFTER_CURSOR + FEED_ORDER)
+    List<CommentSummary> findSummaryFeedByPost(@Param("postId") String postId,
+                                               @Param("deleted") List<Boolean> deleted,
+                                               @Param("createDate") LocalDateTime createDate, @Param("id") String id,
+                                               Pageable pageable);
+
+    // Comments for export (only columns of CommentSummary, no entity kept in persistence context),
+    // must be read in a transaction and closed
+    @Query(SELECT_SUMMARY + WHERE_DELETED_IN)
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = PostRepository.EXPORT_FETCH_SIZE),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    Stream<CommentSummary> streamSummaryByDeletedIn(@Param("deleted") List<Boolean> deleted);
+
+    @Query(SELECT_SUMMARY + WHERE_DELETED_IN + " and o.username = :username")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = PostRepository.EXPORT_FETCH_SIZE),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    Stream<CommentSummary> streamSummaryByOwnerAndDeletedIn(@Param("username") String username,
+                                                            @Param("deleted") List<Boolean> deleted);
+
+    @Query(SELECT_SUMMARY + WHERE_DELETED_IN + " and p.id = :postId")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = PostRepository.EXPORT_FETCH_SIZE),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    Stream<CommentSummary> streamSummaryByPostAndDeletedIn(@Param("postId") String postId,
+                                                           @Param("deleted") List<Boolean> deleted);
 }
@@ -2,14 +2,87 @@ package fa.training.blog.repository;
 
 import fa.training.blog.entity.Post;
 import fa.training.blog.entity.User;
+import fa.training.blog.repository.projection.PostSummary;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PostRepository extends JpaRepository<Post, String> {
+    // Select only columns of PostSummary, so content of post and password of owner are not loaded
+    String SELECT_SUMMARY = "select p.id as id, p.title as title, p.createDate as createDate, "
+            + "p.modifyDate as modifyDate, p.view as view, o.username as ownerUsername, "
+            + "o.firstName as ownerFirstName, o.lastName as ownerLastName from Post p join p.owner o";
+    // Keyset pagination: posts right after the cursor (create date and id of the last post of previous page).
+    // "createDate <=" is implied by the rest but lets database read a range of the create date index.
+    String AFTER_CURSOR = "p.createDate <= :createDate and (p.createDate < :createDate or p.id < :id)";
+    String FEED_ORDER = " order by p.createDate desc, p.id desc";
+    // Export reads rows through a forward-only cursor, this many at a time (MySQL needs useCursorFetch=true in URL).
+    // Rows are read only and not put in second-level cache.
+    String EXPORT_FETCH_SIZE = "500";
+
+    // Owner is lazy, finders below load it in the same query with @EntityGraph (no extra query per owner)
+    @Override
+    @EntityGraph(attributePaths = "owner")
+    Optional<Post> findById(String id);
+
+    // All posts with their owner. A Slice reads one row more than the page to tell hasNext, post table is not counted
+    @EntityGraph(attributePaths = "owner")
+    Slice<Post> findAllBy(Pageable pageable);
+
+    @EntityGraph(attributePaths = "owner")
     List<Post> findByOwner(User owner, Pageable pageable);
+
+    @EntityGraph(attributePaths = "owner")
     List<Post> findByCreateDateBetween(LocalDateTime start, LocalDateTime end, Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = "owner")
+    List<Post> findAllById(Iterable<String> ids);
+
+    @EntityGraph(attributePaths = "owner")
     List<Post> findByTitleIgnoreCaseContains(String title, Pageable pageable);
+
+    // Only modify date, to answer conditional GET (ETag, Last-Modified) without loading post
+    @Query("select p.modifyDate from Post p where p.id = :id")
+    Optional<LocalDateTime> findModifyDateById(@Param("id") String id);
+
+    @Query(SELECT_SUMMARY)
+    List<PostSummary> findAllSummary(Pageable pageable);
+
+    @Query(SELECT_SUMMARY + " where o.username = :username")
+    List<PostSummary> findSummaryByOwner(@Param("username") String username, Pageable pageable);
+
+    @Query(SELECT_SUMMARY + " where p.createDate between :start and :end")
+    List<PostSummary> findSummaryByCreateDateBetween(@Param("start") LocalDateTime start,
+                                                     @Param("end") LocalDateTime end, Pageable pageable);
+
+    @Query(SELECT_SUMMARY + " where upper(p.title) like upper(concat('%', :title, '%'))")
+    List<PostSummary> findSummaryByTitleIgnoreCaseContains(@Param("title") String title, Pageable pageable);
+
+    @Query("select p from Post p join fetch p.owner where " + AFTER_CURSOR + FEED_ORDER)
+    List<Post> findFeed(@Param("createDate") LocalDateTime createDate, @Param("id") String id, Pageable pageable);
+
+    @Query("select p from Post p join fetch p.owner o where o.username = :username and " + AFTER_CURSOR + FEED_ORDER)
+    List<Post> findFeedByOwner(@Param("username") String username, @Param("createDate") LocalDateTime createDate,
+                               @Param("id") String id, Pageable pageable);
+
+    // Every post for export, must be read in a transaction and closed. Caller detaches each post once written,
+    // so persistence context does not keep the whole table.
+    @Query("select p from Post p join fetch p.owner")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheMode", value = "IGNORE")
+    })
+    Stream<Post> streamAllBy();
 }
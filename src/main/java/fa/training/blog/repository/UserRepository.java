@@ -2,13 +2,28 @@ package fa.training.blog.repository;
 
 import fa.training.blog.entity.User;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 
-public interface UserRepository extends JpaRepository<User, String> {
+public interface UserRepository extends JpaRepository<User, String>, BatchRepository<User> {
+    // Result kept in query cache until user table changes
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     User findByEmail(String email);
-    List<User> findByFirstNameIgnoreCaseContains(String firstName, Pageable pageable);
-    List<User> findByLastNameIgnoreCaseContains(String lastName, Pageable pageable);
-    List<User> findByFirstNameIgnoreCaseContainsAndLastNameIgnoreCaseContains(String firstName, String lastName, Pageable pageable);
+
+    // Usernames and emails already taken, checked for a whole batch of imported users at once
+    @Query("select u.username from User u where u.username in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // All users, a page at a time (listing and rebuild of user name index), hasNext without counting users
+    Slice<User> findAllBy(Pageable pageable);
 }
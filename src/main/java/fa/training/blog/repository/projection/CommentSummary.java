@@ -0,0 +1,18 @@
+package fa.training.blog.repository.projection;
+
+import java.time.LocalDateTime;
+
+// Columns of a comment shown in comment listing, with just the name of owner and the title of post.
+// Selected by the @Query in CommentRepository, each alias there must match a getter here.
+public interface CommentSummary {
+    String getId();
+    String getContent();
+    LocalDateTime getCreateDate();
+    LocalDateTime getModifyDate();
+    boolean isDeleted();
+    String getOwnerUsername();
+    String getOwnerFirstName();
+    String getOwnerLastName();
+    String getPostId();
+    String getPostTitle();
+}
@@ -0,0 +1,16 @@
+package fa.training.blog.repository.projection;
+
+import java.time.LocalDateTime;
+
+// Columns of a post shown in post listing, without content and with just the name of owner.
+// Selected by the @Query in PostRepository, each alias there must match a getter here.
+public interface PostSummary {
+    String getId();
+    String getTitle();
+    LocalDateTime getCreateDate();
+    LocalDateTime getModifyDate();
+    int getView();
+    String getOwnerUsername();
+    String getOwnerFirstName();
+    String getOwnerLastName();
+}
@@ -0,0 +1,112 @@
+package fa.training.blog.security;
+
+import fa.training.blog.exception.MyException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BoundedPasswordEncoder implements PasswordEncoder {
+    // Hashing is slow on purpose, so it runs on a few dedicated threads with a bounded queue.
+    // A burst of sign up / sign in waits in the queue (or is rejected when the queue is full)
+    // instead of keeping all request threads busy hashing.
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity) {
+        this.delegate = delegate;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Encode many passwords on the hashing threads (bulk import). At most one password per hashing thread is
+     * waiting at a time, so sign up and sign in still find room in the queue. When the queue is full anyway,
+     * the password is encoded on the calling thread instead of failing the whole import.
+     * @param rawPasswords passwords to encode
+     * @return encoded passwords in the same order
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        List<String> encodedPasswords = new ArrayList<>(rawPasswords.size());
+        Deque<Future<String>> pending = new ArrayDeque<>();
+        try {
+            for (CharSequence rawPassword : rawPasswords) {
+                if (pending.size() == executor.getCorePoolSize()) {
+                    encodedPasswords.add(await(pending.removeFirst()));
+                }
+                try {
+                    pending.addLast(executor.submit(() -> delegate.encode(rawPassword)));
+                } catch (RejectedExecutionException e) {
+                    pending.addLast(CompletableFuture.completedFuture(delegate.encode(rawPassword)));
+                }
+            }
+            while (!pending.isEmpty()) {
+                encodedPasswords.add(await(pending.removeFirst()));
+            }
+            return encodedPasswords;
+        } finally {
+            // Only left when an encoding failed
+            pending.forEach(future -> future.cancel(true));
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new MyException("407", "Server is busy, please try again later");
+        }
+        return await(future);
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MyException("407", "Password hashing interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
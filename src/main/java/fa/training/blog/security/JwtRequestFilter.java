@@ -2,6 +2,8 @@ package fa.training.blog.security;
 
 import fa.training.blog.exception.MyException;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Metrics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -18,6 +20,8 @@ import java.io.IOException;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
+    public static final String VALIDATION_FAILURE_METRIC = "blog.jwt.validation.failures";
+
     @Autowired
     private JwtUserDetailsService jwtUserDetailsService;
     @Autowired
@@ -26,36 +30,44 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         final String requestTokenHeader = request.getHeader("Authorization");
-        String username = null;
-        String jwtToken = null;
+        ValidatedToken validatedToken = null;
 
         // JWT Token is in the form "Bearer token". Remove Bearer word and get only the Token
         if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
-            jwtToken = requestTokenHeader.substring(7);
+            String jwtToken = requestTokenHeader.substring(7);
             try {
-                username = jwtTokenUtil.getUsernameFromToken(jwtToken);
+                // Signature and expiration are checked here, only once for the request
+                validatedToken = jwtTokenUtil.validateToken(jwtToken);
             } catch (IllegalArgumentException e) {
+                countValidationFailure("missing");
                 throw new MyException("404", "Unable to get JWT Token");
             } catch (ExpiredJwtException e) {
+                countValidationFailure("expired");
                 throw new MyException("404", "JWT Token has expired");
+            } catch (JwtException e) {
+                // Bad signature, malformed or unsupported token
+                countValidationFailure(e.getClass().getSimpleName());
+                throw e;
             }
         }
 
-        // Once get the token validate it
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.jwtUserDetailsService.loadUserByUsername(username);
-
-            // if token is valid configure Spring Security to manually set authentication
-            if (jwtTokenUtil.validateToken(jwtToken, userDetails)) {
-                UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(userDetails,
-                        null, userDetails.getAuthorities());
-                token.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                // After setting the Authentication in the context, we specify that the current user
-                // is authenticated. So it passes the Spring Security Configurations successfully.
-                SecurityContextHolder.getContext().setAuthentication(token);
-            }
+        // Once token is valid, configure Spring Security to manually set authentication
+        if (validatedToken != null && validatedToken.getUsername() != null
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = this.jwtUserDetailsService.loadUserByUsername(validatedToken.getUsername());
+            UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(userDetails,
+                    null, userDetails.getAuthorities());
+            token.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            // After setting the Authentication in the context, we specify that the current user
+            // is authenticated. So it passes the Spring Security Configurations successfully.
+            SecurityContextHolder.getContext().setAuthentication(token);
         }
 
         filterChain.doFilter(request, response);
     }
+
+    private void countValidationFailure(String reason) {
+        // Global registry, which Spring Boot adds its registry to (filter is also created in web test slices)
+        Metrics.counter(VALIDATION_FAILURE_METRIC, "reason", reason).increment();
+    }
 }
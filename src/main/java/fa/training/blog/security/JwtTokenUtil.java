@@ -1,9 +1,13 @@
 package fa.training.blog.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import fa.training.blog.utils.Constant;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cglib.core.internal.Function;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -11,11 +15,21 @@ import org.springframework.stereotype.Component;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtTokenUtil {
     public static final long JWT_TOKEN_VALID_TIME = 5*60*60;
     private final String secret = Constant.SECRET;
+    // Tokens verified recently, so the same token sent again skip the HMAC check until it expires
+    private final Cache<String, ValidatedToken> verifiedTokens;
+
+    public JwtTokenUtil(@Value("${blog.security.verified-token-cache.max-size:10000}") long maxSize) {
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry())
+                .build();
+    }
 
     public String getUsernameFromToken(String token) {
         return getClaimFromToken(token, Claims::getSubject);
@@ -64,7 +78,44 @@ public class JwtTokenUtil {
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = getUsernameFromToken(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        final String username = validateToken(token).getUsername();
+        return username.equals(userDetails.getUsername());
+    }
+
+    /**
+     * Parse token only once: verify signature and expiration then return its claims.
+     * Throw the same exceptions as parsing with Jwts.parser() (ExpiredJwtException, IllegalArgumentException...).
+     */
+    public ValidatedToken validateToken(String token) {
+        ValidatedToken verifiedToken = verifiedTokens.getIfPresent(token);
+        if (verifiedToken != null && !verifiedToken.isExpired()) {
+            return verifiedToken;
+        }
+        // Not verified yet (or just expired): parse it, the parser throws exception if token is invalid or expired
+        final Claims claims = getAllClaimsFromToken(token);
+        ValidatedToken validatedToken = new ValidatedToken(claims.getSubject(), claims.getIssuedAt(), claims.getExpiration());
+        verifiedTokens.put(token, validatedToken);
+        return validatedToken;
+    }
+
+    private static class TokenExpiry implements Expiry<String, ValidatedToken> {
+        // Keep a verified token in cache until the token itself expires
+        @Override
+        public long expireAfterCreate(String token, ValidatedToken validatedToken, long currentTime) {
+            long validMillis = validatedToken.getExpiration() == null
+                    ? JWT_TOKEN_VALID_TIME*1000
+                    : validatedToken.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, validMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, ValidatedToken validatedToken, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, validatedToken, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, ValidatedToken validatedToken, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
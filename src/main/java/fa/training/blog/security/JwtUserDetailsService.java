@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -15,12 +16,18 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Service
-public class JwtUserDetailsService implements UserDetailsService {
+public class JwtUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     @Autowired
     UserService userService;
+    @Autowired
+    private PrincipalCache principalCache;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserDetails cachedUser = principalCache.get(username);
+        if (cachedUser != null) {
+            return cachedUser;
+        }
         UserDTO user = userService.findUserByUsername(username);
         if (user == null){
             throw new MyException("400", "Username not found");
@@ -28,6 +35,17 @@ public class JwtUserDetailsService implements UserDetailsService {
         List<GrantedAuthority> authorities = new ArrayList<>();
         GrantedAuthority authority = new SimpleGrantedAuthority(user.getRole());
         authorities.add(authority);
-        return new JwtUserDetails(username, user.getPassword(), authorities);
+        UserDetails userDetails = new JwtUserDetails(username, user.getPassword(), authorities);
+        principalCache.put(userDetails);
+        return userDetails;
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        // Called after a successful sign in when the saved password hash is outdated
+        // (other algorithm or lower strength), "newPassword" is already encoded with the current settings
+        userService.updateEncodedPassword(user.getUsername(), newPassword);
+        List<GrantedAuthority> authorities = new ArrayList<>(user.getAuthorities());
+        return new JwtUserDetails(user.getUsername(), newPassword, authorities);
     }
 }
@@ -0,0 +1,36 @@
+package fa.training.blog.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+public class PrincipalCache {
+    // Users loaded by JwtUserDetailsService, so authenticated requests do not read user table every time.
+    // Entries expire after "ttl" and the least used are evicted when cache reach "max-size".
+    private final Cache<String, UserDetails> cache;
+
+    public PrincipalCache(@Value("${blog.security.principal-cache.max-size:10000}") long maxSize,
+                          @Value("${blog.security.principal-cache.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public UserDetails get(String username) {
+        return cache.getIfPresent(username);
+    }
+
+    public void put(UserDetails userDetails) {
+        cache.put(userDetails.getUsername(), userDetails);
+    }
+
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+}
@@ -0,0 +1,32 @@
+package fa.training.blog.security;
+
+import java.util.Date;
+
+public class ValidatedToken {
+    // Claims of a token which signature is already verified by JwtTokenUtil
+    private final String username;
+    private final Date issuedAt;
+    private final Date expiration;
+
+    public ValidatedToken(String username, Date issuedAt, Date expiration) {
+        this.username = username;
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Date getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Date getExpiration() {
+        return expiration;
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+}
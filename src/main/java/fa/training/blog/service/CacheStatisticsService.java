@@ -0,0 +1,11 @@
+package fa.training.blog.service;
+
+import java.util.Map;
+
+public interface CacheStatisticsService {
+    /**
+     * Get hit, miss and put counts of Hibernate second-level cache regions and of query cache
+     * @return statistics by region name, plus "queryCache" for query cache
+     */
+    Map<String, Map<String, Long>> getStatistics();
+}
@@ -1,9 +1,12 @@
 package fa.training.blog.service;
 
 import fa.training.blog.dto.CommentDTO;
+import fa.training.blog.model.MappedPage;
+import fa.training.blog.model.ResponseObject;
 import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface CommentService {
@@ -16,6 +19,15 @@ public interface CommentService {
      */
     CommentDTO createComment(CommentDTO commentDTO, String postID, String username);
 
+    /**
+     * Create many comments at once, for one or more posts. Owner and posts are loaded once for all comments,
+     * comments are inserted in JDBC batches.
+     * @param commentDTOS comments to create (content and id of post)
+     * @param username of comments' owner
+     * @return one result per comment in the same order: created comment (code "200") or error code and message
+     */
+    List<ResponseObject> createComments(List<CommentDTO> commentDTOS, String username);
+
     /**
      * Update new comment to database.
      * @param commentDTO comment with new update
@@ -48,65 +60,137 @@ public interface CommentService {
      */
     CommentDTO findCommentByIDAndDeleted(String id);
 
+    /**
+     * Find modify date of comment, without loading comment
+     * @param id of comment
+     * @param includeDeleted true if soft-deleted comment can be found (for admin)
+     * @return modify date of comment, null if comment not found
+     */
+    LocalDateTime findCommentModifyDate(String id, boolean includeDeleted);
+
     /**
      * Find all comment in database
      * @param pageable a Pageable object
-     * @return list of comments found or empty list if not found any
+     * @return page of comments found (empty if not found any), hasNext tells if there is a next page
      */
-    List<CommentDTO> findAllComment(Pageable pageable);
+    MappedPage<CommentDTO> findAllComment(Pageable pageable);
 
     /**
      * Find all comment in database that is not soft-deleted
      * @param pageable a Pageable object
-     * @return list of comments found or empty list if not found any
+     * @return page of comments found, empty if not found any
      */
-    List<CommentDTO> findCommentByDeleted(Pageable pageable);
+    MappedPage<CommentDTO> findCommentByDeleted(Pageable pageable);
 
     /**
      * Find all comment in database of an owner
      * @param username of owner
      * @param pageable a Pageable object
-     * @return list of comments found or empty list if not found any
+     * @return page of comments found, empty if not found any
      */
-    List<CommentDTO> findCommentByOwner(String username, Pageable pageable);
+    MappedPage<CommentDTO> findCommentByOwner(String username, Pageable pageable);
 
     /**
      * Find all comment in database of an owner and not soft-deleted
      * @param username of owner
      * @param pageable a Pageable object
-     * @return list of comments found or empty list if not found any
+     * @return page of comments found, empty if not found any
      */
-    List<CommentDTO> findCommentByOwnerAndDeleted(String username, Pageable pageable);
+    MappedPage<CommentDTO> findCommentByOwnerAndDeleted(String username, Pageable pageable);
 
     /**
      * Find all comment in database of a post
      * @param postID of post
      * @param pageable a Pageable object
-     * @return list of comments found or empty list if not found any
+     * @return page of comments found, empty if not found any
      */
-    List<CommentDTO> findCommentByPost(String postID, Pageable pageable);
+    MappedPage<CommentDTO> findCommentByPost(String postID, Pageable pageable);
 
     /**
      * Find all comment in database of a post and not soft-deleted
      * @param postID of post
      * @param pageable a Pageable object
-     * @return list of comments found or empty list if not found any
+     * @return page of comments found, empty if not found any
      */
-    List<CommentDTO> findCommentByPostAndDeleted(String postID, Pageable pageable);
+    MappedPage<CommentDTO> findCommentByPostAndDeleted(String postID, Pageable pageable);
 
     /**
      * Find all comment in database that create in a specific date
      * @param createDate date comments created
      * @param pageable a Pageable object
-     * @return list of comments found or empty list if not found any
+     * @return page of comments found, empty if not found any
      */
-    List<CommentDTO> findCommentByCreateDate(LocalDate createDate, Pageable pageable);
+    MappedPage<CommentDTO> findCommentByCreateDate(LocalDate createDate, Pageable pageable);
 
     /**
      * Find all comment in database that create in a specific date and not soft-deleted
      * @param createDate date comment created
      * @param pageable a Pageable object
-     * @return list of comments found or empty list if not found any
+     * @return page of comments found, empty if not found any
+     */
+    MappedPage<CommentDTO> findCommentByCreateDateAndDeleted(LocalDate createDate, Pageable pageable);
+
+    /**
+     * Find all comment in database, loading only columns shown in comment listing
+     * @param includeDeleted also return soft-deleted comments (for admin)
+     * @param pageable a Pageable object
+     * @return page of comment summary found, empty if not found any
+     */
+    MappedPage<CommentDTO> findAllCommentSummary(boolean includeDeleted, Pageable pageable);
+
+    /**
+     * Find all comment in database of an owner, loading only columns shown in comment listing
+     * @param username of owner
+     * @param includeDeleted also return soft-deleted comments (for admin)
+     * @param pageable a Pageable object
+     * @return page of comment summary found, empty if not found any
+     */
+    MappedPage<CommentDTO> findCommentSummaryByOwner(String username, boolean includeDeleted, Pageable pageable);
+
+    /**
+     * Find all comment in database of a post, loading only columns shown in comment listing
+     * @param postID of post
+     * @param includeDeleted also return soft-deleted comments (for admin)
+     * @param pageable a Pageable object
+     * @return page of comment summary found, empty if not found any
+     */
+    MappedPage<CommentDTO> findCommentSummaryByPost(String postID, boolean includeDeleted, Pageable pageable);
+
+    /**
+     * Find all comment in database that create in a specific date, loading only columns shown in comment listing
+     * @param createDate date comments created
+     * @param includeDeleted also return soft-deleted comments (for admin)
+     * @param pageable a Pageable object
+     * @return page of comment summary found, empty if not found any
+     */
+    MappedPage<CommentDTO> findCommentSummaryByCreateDate(LocalDate createDate, boolean includeDeleted, Pageable pageable);
+
+    /**
+     * Find newest comments using keyset pagination, cost of a page does not depend on how deep it is
+     * @param cursor "nextCursor" of previous page, empty for the first page
+     * @param includeDeleted also return soft-deleted comments (for admin)
+     * @param size number of comments in a page
+     * @return page of comments with cursor of next page
+     */
+    MappedPage<CommentDTO> findCommentFeed(String cursor, boolean includeDeleted, int size);
+
+    /**
+     * Find newest comments of an owner using keyset pagination
+     * @param username of owner
+     * @param cursor "nextCursor" of previous page, empty for the first page
+     * @param includeDeleted also return soft-deleted comments (for admin)
+     * @param size number of comments in a page
+     * @return page of comments with cursor of next page
+     */
+    MappedPage<CommentDTO> findCommentFeedByOwner(String username, String cursor, boolean includeDeleted, int size);
+
+    /**
+     * Find newest comments of a post using keyset pagination
+     * @param postID of post
+     * @param cursor "nextCursor" of previous page, empty for the first page
+     * @param includeDeleted also return soft-deleted comments (for admin)
+     * @param size number of comments in a page
+     * @return page of comments with cursor of next page
      */
-    List<CommentDTO> findCommentByCreateDateAndDeleted(LocalDate createDate, Pageable pageable);
+    MappedPage<CommentDTO> findCommentFeedByPost(String postID, String cursor, boolean includeDeleted, int size);
 }
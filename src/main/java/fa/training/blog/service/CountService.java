@@ -0,0 +1,22 @@
+package fa.training.blog.service;
+
+public interface CountService {
+    /**
+     * Count all post in database. Count is cached for a while so it can be a little behind.
+     * @return approximate number of posts
+     */
+    long countPost();
+
+    /**
+     * Count all comment in database. Count is cached for a while so it can be a little behind.
+     * @param includeDeleted also count soft-deleted comments (for admin)
+     * @return approximate number of comments
+     */
+    long countComment(boolean includeDeleted);
+
+    /**
+     * Count all user in database. Count is cached for a while so it can be a little behind.
+     * @return approximate number of users
+     */
+    long countUser();
+}
@@ -0,0 +1,23 @@
+package fa.training.blog.service;
+
+import java.io.OutputStream;
+
+public interface ExportService {
+    /**
+     * Write every post (with owner) as newline-delimited JSON, one post per line. Posts are read through
+     * a database cursor and written one at a time, so memory use does not depend on number of posts.
+     * @param output stream to write to, not closed
+     * @return number of posts written
+     */
+    long exportPosts(OutputStream output);
+
+    /**
+     * Same as above for comments, like in comment listing (owner name, id and title of post)
+     * @param owner only comments of this username, null for all
+     * @param post only comments of this post, null for all (owner is used if both given)
+     * @param includeDeleted true to also write soft-deleted comments
+     * @param output stream to write to, not closed
+     * @return number of comments written
+     */
+    long exportComments(String owner, String post, boolean includeDeleted, OutputStream output);
+}
@@ -0,0 +1,11 @@
+package fa.training.blog.service;
+
+public interface IdMigrationService {
+    /**
+     * Give time-ordered IDs (see SnowflakeIdGenerator) to posts and comments still keyed by random UUID.
+     * New IDs keep the order of create date. Comments of a migrated post are moved to its new ID.
+     * Can be run again, rows that failed (e.g. changed during migration) are migrated on next run.
+     * @return number of posts and comments migrated
+     */
+    int migrateLegacyIds();
+}
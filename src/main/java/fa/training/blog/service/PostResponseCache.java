@@ -0,0 +1,53 @@
+package fa.training.blog.service;
+
+import fa.training.blog.dto.PostDTO;
+
+import java.time.LocalDateTime;
+
+public interface PostResponseCache {
+    /**
+     * Get cached JSON response of a post, with view count patched in
+     * @param postID ID of post
+     * @param recordedViews views of post recorded by ViewCountService now
+     * @return JSON bytes of ResponseObject with the post, null if post is not cached
+     */
+    byte[] get(String postID, long recordedViews);
+
+    /**
+     * Get modify date of a cached post, to answer a conditional GET without database
+     * @param postID ID of post
+     * @return modify date of post, null if post is not cached
+     */
+    LocalDateTime getModifyDate(String postID);
+
+    /**
+     * Get invalidation generation of a post, read before the post is read from database and given back to put
+     * @param postID ID of post
+     * @return generation, changed by every invalidate of the post
+     */
+    long generation(String postID);
+
+    /**
+     * Serialize response of a post and keep it in cache, unless the post was invalidated since it was read
+     * (edited or deleted meanwhile, the post read is stale)
+     * @param post post to serialize, its view must already include pending views
+     * @param recordedViews views of post recorded by ViewCountService when post was read
+     * @param generation of the post taken before it was read
+     * @return JSON bytes of ResponseObject with the post
+     */
+    byte[] put(PostDTO post, long recordedViews, long generation);
+
+    /**
+     * Keep view count of a cached response right when ViewCountService removes the counter of the post,
+     * the next counter starts from 0
+     * @param postID ID of post
+     * @param removedViews total of the removed counter
+     */
+    void rebase(String postID, long removedViews);
+
+    /**
+     * Drop cached response of a post, used when the post is edited or deleted
+     * @param postID ID of post
+     */
+    void invalidate(String postID);
+}
@@ -0,0 +1,35 @@
+package fa.training.blog.service;
+
+import fa.training.blog.dto.PostDTO;
+
+import java.util.List;
+
+public interface PostSearchService {
+    /**
+     * Add post to search index, or replace it if already indexed
+     * @param post post with id, title and content
+     */
+    void index(PostDTO post);
+
+    /**
+     * Remove post from search index
+     * @param postID ID of post
+     */
+    void remove(String postID);
+
+    /**
+     * Search posts by words in title and content. A word also matches words starting with it,
+     * posts with the exact word in title rank first.
+     * @param text words to search
+     * @param page page want to get
+     * @param size number of posts in a page
+     * @return IDs of posts found, best match first, or empty list if not found any
+     */
+    List<String> search(String text, int page, int size);
+
+    /**
+     * Drop search index and index again all posts in database
+     * @return number of posts indexed
+     */
+    int rebuild();
+}
@@ -1,9 +1,13 @@
 package fa.training.blog.service;
 
 import fa.training.blog.dto.PostDTO;
+import fa.training.blog.entity.Post;
+import fa.training.blog.model.MappedPage;
 import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface PostService {
@@ -32,17 +36,17 @@ public interface PostService {
     /**
      * Find all post in database
      * @param pageable a Pageable object
-     * @return list of post found or empty list if not found any
+     * @return page of post found (empty if not found any), hasNext tells if there is a next page
      */
-    List<PostDTO> findAllPost(Pageable pageable);
+    MappedPage<PostDTO> findAllPost(Pageable pageable);
 
     /**
      * Find post in database by owner
      * @param username of owner
      * @param pageable a Pageable object
-     * @return list of post found or empty list if not found any
+     * @return page of post found, empty if not found any
      */
-    List<PostDTO> findPostByOwner(String username, Pageable pageable);
+    MappedPage<PostDTO> findPostByOwner(String username, Pageable pageable);
 
     /**
      * Find post in database by ID
@@ -51,19 +55,123 @@ public interface PostService {
      */
     PostDTO findPostByID(String id);
 
+    /**
+     * Find post by ID and get the response already serialized to JSON. Hot posts are answered from cache.
+     * @param id of post
+     * @return JSON bytes of ResponseObject with the post, null if post not found
+     */
+    byte[] findPostResponseByID(String id);
+
+    /**
+     * Find modify date of post, without loading post or counting a view (from response cache if post is in it)
+     * @param id of post
+     * @return modify date of post, null if post not found
+     */
+    LocalDateTime findPostModifyDate(String id);
+
+    /**
+     * Count a view of post without loading it, when client already has this version of post (304)
+     * @param id of post
+     */
+    void recordPostView(String id);
+
+    /**
+     * Check if post exists in database, without counting a view
+     * @param id of post
+     * @return true if post exists else false
+     */
+    boolean existsPostByID(String id);
+
+    /**
+     * Get a reference to post without loading it from database and without counting a view.
+     * Use to set post of a comment or to find comments by post, after checking the post exists.
+     * @param id of post
+     * @return reference to post
+     */
+    Post getPostReference(String id);
+
+    /**
+     * Load posts in one query, without counting views. Use to set post of many comments at once.
+     * @param ids of posts
+     * @return posts found, posts not found are left out
+     */
+    List<Post> getPosts(Collection<String> ids);
+
     /**
      * Find post in database by create date
      * @param createDate date post created
      * @param pageable a Pageable object
-     * @return list of post found or empty list if not found any
+     * @return page of post found, empty if not found any
      */
-    List<PostDTO> findPostByCreateDate(LocalDate createDate, Pageable pageable);
+    MappedPage<PostDTO> findPostByCreateDate(LocalDate createDate, Pageable pageable);
 
     /**
      * Find post in database by title
      * @param title of post
      * @param pageable a Pageable object
-     * @return list of post found or empty list if not found any
+     * @return page of post found, empty if not found any
+     */
+    MappedPage<PostDTO> findPostByTitle(String title, Pageable pageable);
+
+    /**
+     * Search post by words in title and content using search index (see PostSearchService)
+     * @param text words to search, a word also matches words starting with it
+     * @param pageable a Pageable object (sort is ignored, best match first)
+     * @return page of post found, empty if not found any
+     */
+    MappedPage<PostDTO> searchPost(String text, Pageable pageable);
+
+    /**
+     * Index again all posts in database, use when search index is lost or out of date
+     * @return number of posts indexed
+     */
+    int rebuildSearchIndex();
+
+    /**
+     * Find all post in database, loading only columns shown in post listing (no content)
+     * @param pageable a Pageable object
+     * @return page of post summary found, empty if not found any
+     */
+    MappedPage<PostDTO> findAllPostSummary(Pageable pageable);
+
+    /**
+     * Find post in database by owner, loading only columns shown in post listing (no content)
+     * @param username of owner
+     * @param pageable a Pageable object
+     * @return page of post summary found, empty if not found any
+     */
+    MappedPage<PostDTO> findPostSummaryByOwner(String username, Pageable pageable);
+
+    /**
+     * Find post in database by create date, loading only columns shown in post listing (no content)
+     * @param createDate date post created
+     * @param pageable a Pageable object
+     * @return page of post summary found, empty if not found any
+     */
+    MappedPage<PostDTO> findPostSummaryByCreateDate(LocalDate createDate, Pageable pageable);
+
+    /**
+     * Find post in database by title, loading only columns shown in post listing (no content)
+     * @param title of post
+     * @param pageable a Pageable object
+     * @return page of post summary found, empty if not found any
+     */
+    MappedPage<PostDTO> findPostSummaryByTitle(String title, Pageable pageable);
+
+    /**
+     * Find newest posts using keyset pagination, cost of a page does not depend on how deep it is
+     * @param cursor "nextCursor" of previous page, empty for the first page
+     * @param size number of posts in a page
+     * @return page of posts with cursor of next page
+     */
+    MappedPage<PostDTO> findPostFeed(String cursor, int size);
+
+    /**
+     * Find newest posts of an owner using keyset pagination
+     * @param username of owner
+     * @param cursor "nextCursor" of previous page, empty for the first page
+     * @param size number of posts in a page
+     * @return page of posts with cursor of next page
      */
-    List<PostDTO> findPostByTitle(String title, Pageable pageable);
+    MappedPage<PostDTO> findPostFeedByOwner(String username, String cursor, int size);
 }
@@ -0,0 +1,20 @@
+package fa.training.blog.service;
+
+import fa.training.blog.model.ResponseObject;
+
+import java.io.Reader;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public interface UserImportService {
+    /**
+     * Import users read line by line, one batch at a time, so the whole input is never in memory.
+     * Usernames and emails of a batch are checked in one query each, passwords are encoded on the hashing
+     * threads and users are inserted in JDBC batches. A rejected user does not stop the import.
+     * @param reader users as newline-delimited JSON (one user per line) or CSV with a header line
+     * @param csv true if reader is CSV, false if newline-delimited JSON
+     * @param listener gets each rejected user (error code, line and message) and counts after each batch
+     * @return number of users read, imported and rejected
+     */
+    Map<String, Integer> importUsers(Reader reader, boolean csv, Consumer<ResponseObject> listener);
+}
@@ -0,0 +1,37 @@
+package fa.training.blog.service;
+
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+public interface UserNameIndexService {
+    /**
+     * Add user to name index, or replace it if already indexed
+     * @param username of user
+     * @param firstName first name of user
+     * @param lastName last name of user
+     * @param role role of user (index sorts users by role and username)
+     */
+    void put(String username, String firstName, String lastName, String role);
+
+    /**
+     * Remove user from name index
+     * @param username of user
+     */
+    void remove(String username);
+
+    /**
+     * Find users whose names contain given parts, ignoring case and accents
+     * @param firstName part of first name, null to not check first name
+     * @param lastName part of last name, null to not check last name
+     * @param pageable a Pageable object (sort is always by role and by username)
+     * @return usernames of a page of users found or empty list if not found any
+     */
+    List<String> find(String firstName, String lastName, Pageable pageable);
+
+    /**
+     * Drop name index and index again all users in database
+     * @return number of users indexed
+     */
+    int rebuild();
+}
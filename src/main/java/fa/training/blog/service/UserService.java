@@ -2,6 +2,7 @@ package fa.training.blog.service;
 
 import fa.training.blog.dto.UserDTO;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -27,12 +28,19 @@ public interface UserService {
      */
     UserDTO editUser(UserDTO user);
 
+    /**
+     * Update password of a user with a password already encoded, used to upgrade old password hash
+     * @param username of user
+     * @param encodedPassword new encoded password
+     */
+    void updateEncodedPassword(String username, String encodedPassword);
+
     /**
      * Find all user in database
      * @param pageable a Pageable object
-     * @return list of user found or empty list if not found any
+     * @return slice of user found (empty if not found any), hasNext tells if there is a next page
      */
-    List<UserDTO> findAllUser(Pageable pageable);
+    Slice<UserDTO> findAllUser(Pageable pageable);
 
     /**
      * Find user in database by username
@@ -0,0 +1,36 @@
+package fa.training.blog.service;
+
+public interface ViewCountService {
+    /**
+     * Count one view of a post. The view is kept in memory until the next flush.
+     * @param postID ID of post viewed
+     */
+    void recordView(String postID);
+
+    /**
+     * Get number of views counted in memory but not written to database yet
+     * @param postID ID of post
+     * @return number of pending views, 0 if none
+     */
+    long getPendingViews(String postID);
+
+    /**
+     * Get number of views counted by the counter of a post (written to database or not). Counter of a post
+     * with no view during a flush interval is removed, its total is then taken off PostResponseCache by rebase.
+     * @param postID ID of post
+     * @return number of recorded views, 0 if none
+     */
+    long getRecordedViews(String postID);
+
+    /**
+     * Write all pending views to database in one batch (one transaction), and remove counters of posts
+     * not viewed since the last flush
+     */
+    void flush();
+
+    /**
+     * Drop pending views of a post, used when the post is deleted
+     * @param postID ID of post
+     */
+    void discard(String postID);
+}
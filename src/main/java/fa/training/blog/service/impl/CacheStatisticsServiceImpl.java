@@ -0,0 +1,45 @@
+package fa.training.blog.service.impl;
+
+import fa.training.blog.service.CacheStatisticsService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Service
+public class CacheStatisticsServiceImpl implements CacheStatisticsService {
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public Map<String, Map<String, Long>> getStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region == null) {
+                continue;
+            }
+            Map<String, Long> counts = new LinkedHashMap<>();
+            counts.put("hit", region.getHitCount());
+            counts.put("miss", region.getMissCount());
+            counts.put("put", region.getPutCount());
+            // JCache does not always tell number of entries (returns a negative value)
+            if (region.getElementCountInMemory() >= 0) {
+                counts.put("size", region.getElementCountInMemory());
+            }
+            result.put(regionName, counts);
+        }
+        Map<String, Long> queryCache = new LinkedHashMap<>();
+        queryCache.put("hit", statistics.getQueryCacheHitCount());
+        queryCache.put("miss", statistics.getQueryCacheMissCount());
+        queryCache.put("put", statistics.getQueryCachePutCount());
+        result.put("queryCache", queryCache);
+        return result;
+    }
+}
@@ -1,32 +1,52 @@
 package fa.training.blog.service.impl;
 
 import fa.training.blog.dto.CommentDTO;
-import fa.training.blog.dto.PostDTO;
 import fa.training.blog.dto.UserDTO;
 import fa.training.blog.entity.Comment;
 import fa.training.blog.entity.Post;
 import fa.training.blog.entity.User;
 import fa.training.blog.exception.MyException;
+import fa.training.blog.mapper.DtoMapper;
+import fa.training.blog.model.CursorPage;
+import fa.training.blog.model.MappedPage;
+import fa.training.blog.model.ResponseObject;
 import fa.training.blog.repository.CommentRepository;
+import fa.training.blog.repository.projection.CommentSummary;
 import fa.training.blog.service.CommentService;
 import fa.training.blog.service.PostService;
 import fa.training.blog.service.UserService;
-import org.modelmapper.ModelMapper;
+import fa.training.blog.utils.FeedCursor;
+import fa.training.blog.utils.IdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class CommentServiceImpl implements CommentService {
+    // Values of "deleted" to select in comment summary queries
+    private static final List<Boolean> NOT_DELETED = Collections.singletonList(false);
+    private static final List<Boolean> ALL_DELETED = Arrays.asList(false, true);
+
     @Autowired
     private CommentRepository commentRepository;
     @Autowired
@@ -34,16 +54,20 @@ public class CommentServiceImpl implements CommentService {
     @Autowired
     private PostService postService;
     @Autowired
-    private ModelMapper modelMapper;
+    private DtoMapper dtoMapper;
+    @Autowired
+    private IdGenerator idGenerator;
+    @Autowired
+    private Validator validator;
+    @Value("${blog.comment.batch-max-size:500}")
+    private int batchMaxSize;
 
     @Override
     public CommentDTO createComment(CommentDTO commentDTO, String postID, String username) {
-        // Set post
-        PostDTO postDTO = postService.findPostByID(postID);
-        if (postDTO == null) {
+        // Check post exists, post itself is set as a reference when saving
+        if (!postService.existsPostByID(postID)) {
             throw new MyException("400", "Post not found");
         }
-        commentDTO.setPost(postDTO);
 
         // Set owner
         UserDTO owner = userService.findUserByUsername(username);
@@ -52,14 +76,76 @@ public class CommentServiceImpl implements CommentService {
         }
         commentDTO.setOwner(owner);
 
-        // Set ID using UUID
-        UUID id = UUID.randomUUID();
-        commentDTO.setId(id.toString());
+        // Set ID, time-ordered so new rows are appended at the end of primary key index
+        commentDTO.setId(idGenerator.nextId());
 
         commentDTO.setDeleted(false);
 
-        Comment savedComment = commentRepository.save(modelMapper.map(commentDTO, Comment.class));
-        return modelMapper.map(savedComment, CommentDTO.class);
+        Comment comment = dtoMapper.toComment(commentDTO);
+        comment.setPost(postService.getPostReference(postID));
+        Comment savedComment = commentRepository.save(comment);
+        return dtoMapper.toCommentDTO(savedComment);
+    }
+
+    @Override
+    public List<ResponseObject> createComments(List<CommentDTO> commentDTOS, String username) {
+        if (commentDTOS.size() > batchMaxSize) {
+            throw new MyException("406", "Too many comments, at most " + batchMaxSize + " in a batch");
+        }
+        // Owner and posts are loaded once for the whole batch
+        UserDTO owner = userService.findUserByUsername(username);
+        if (owner == null) {
+            throw new MyException("400", "Username not found");
+        }
+        Set<String> postIDs = commentDTOS.stream()
+                .map(this::postIDOf)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, Post> posts = postService.getPosts(postIDs).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+
+        List<ResponseObject> results = new ArrayList<>(commentDTOS.size());
+        List<Comment> comments = new ArrayList<>();
+        // Position in "results" of each comment to insert
+        List<Integer> positions = new ArrayList<>();
+        for (CommentDTO commentDTO : commentDTOS) {
+            Set<ConstraintViolation<CommentDTO>> violations = validator.validate(commentDTO);
+            Post post = posts.get(postIDOf(commentDTO));
+            if (!violations.isEmpty()) {
+                ConstraintViolation<CommentDTO> violation = violations.iterator().next();
+                results.add(new ResponseObject("406", violation.getPropertyPath() + " " + violation.getMessage()));
+            } else if (post == null) {
+                results.add(new ResponseObject("400", "Post not found"));
+            } else {
+                commentDTO.setId(idGenerator.nextId());
+                commentDTO.setOwner(owner);
+                commentDTO.setDeleted(false);
+                Comment comment = dtoMapper.toComment(commentDTO);
+                comment.setPost(post);
+                comments.add(comment);
+                positions.add(results.size());
+                // Replaced by created comment after insert
+                results.add(null);
+            }
+        }
+
+        try {
+            commentRepository.persistAll(comments);
+        } catch (DataAccessException e) {
+            // Comments are inserted in one transaction, so none of them is created
+            for (Integer position : positions) {
+                results.set(position, new ResponseObject("407", "Cannot save comment: " + e.getMessage()));
+            }
+            return results;
+        }
+        for (int i = 0; i < comments.size(); i++) {
+            results.set(positions.get(i), new ResponseObject(dtoMapper.toCommentDTO(comments.get(i))));
+        }
+        return results;
+    }
+
+    private String postIDOf(CommentDTO commentDTO) {
+        return commentDTO.getPost() == null ? null : commentDTO.getPost().getId();
     }
 
     @Override
@@ -72,8 +158,8 @@ public class CommentServiceImpl implements CommentService {
             }
 
             commentToEdit.setContent(commentDTO.getContent());
-            Comment editedComment = commentRepository.saveAndFlush(modelMapper.map(commentToEdit, Comment.class));
-            return modelMapper.map(editedComment, CommentDTO.class);
+            Comment editedComment = commentRepository.saveAndFlush(dtoMapper.toComment(commentToEdit));
+            return dtoMapper.toCommentDTO(editedComment);
         } else {
             throw new MyException("400", "Comment not found");
         }
@@ -98,8 +184,8 @@ public class CommentServiceImpl implements CommentService {
                 }
                 // else just soft-delete the comment
                 commentToDelete.setDeleted(true);
-                Comment deletedComment = commentRepository.saveAndFlush(modelMapper.map(commentToDelete, Comment.class));
-                return modelMapper.map(deletedComment, CommentDTO.class);
+                Comment deletedComment = commentRepository.saveAndFlush(dtoMapper.toComment(commentToDelete));
+                return dtoMapper.toCommentDTO(deletedComment);
             // else if user is not owner but has role admin
             } else if (isAdmin) {
                 // If comment is soft-deleted or "Deleted by admin" then delete it for real
@@ -109,8 +195,8 @@ public class CommentServiceImpl implements CommentService {
                 }
                 // else just change content to "Deleted by admin"
                 commentToDelete.setContent("Deleted by admin");
-                Comment deletedByAdmin = commentRepository.saveAndFlush(modelMapper.map(commentToDelete, Comment.class));
-                return modelMapper.map(deletedByAdmin, CommentDTO.class);
+                Comment deletedByAdmin = commentRepository.saveAndFlush(dtoMapper.toComment(commentToDelete));
+                return dtoMapper.toCommentDTO(deletedByAdmin);
             // else if user is not owner nor admin then throw exception
             } else {
                 throw new MyException("403", "Just owner or admin can delete comment");
@@ -123,7 +209,7 @@ public class CommentServiceImpl implements CommentService {
     @Override
     public CommentDTO findCommentByID(String id) {
         Optional<Comment> comment = commentRepository.findById(id);
-        return comment.map(value -> modelMapper.map(value, CommentDTO.class)).orElse(null);
+        return comment.map(dtoMapper::toCommentDTO).orElse(null);
     }
 
     @Override
@@ -132,76 +218,160 @@ public class CommentServiceImpl implements CommentService {
         if (comment == null) {
             return null;
         }
-        return modelMapper.map(comment, CommentDTO.class);
+        return dtoMapper.toCommentDTO(comment);
+    }
+
+    @Override
+    public LocalDateTime findCommentModifyDate(String id, boolean includeDeleted) {
+        return commentRepository.findModifyDateByIdAndDeletedIn(id, deletedValues(includeDeleted)).orElse(null);
     }
 
     @Override
-    public List<CommentDTO> findAllComment(Pageable pageable) {
-        Page<Comment> comments = commentRepository.findAll(pageable);
-        return comments.stream().map(comment -> modelMapper.map(comment, CommentDTO.class)).collect(Collectors.toList());
+    public MappedPage<CommentDTO> findAllComment(Pageable pageable) {
+        Slice<Comment> comments = commentRepository.findAllBy(pageable);
+        MappedPage<CommentDTO> page = toPage(comments.getContent());
+        page.setHasNext(comments.hasNext());
+        return page;
     }
 
     @Override
-    public List<CommentDTO> findCommentByDeleted(Pageable pageable) {
-        List<Comment> comments = commentRepository.findByDeleted(false, pageable);
-        return comments.stream().map(comment -> modelMapper.map(comment, CommentDTO.class)).collect(Collectors.toList());
+    public MappedPage<CommentDTO> findCommentByDeleted(Pageable pageable) {
+        return toPage(commentRepository.findByDeleted(false, pageable));
     }
 
     @Override
-    public List<CommentDTO> findCommentByOwner(String username, Pageable pageable) {
+    public MappedPage<CommentDTO> findCommentByOwner(String username, Pageable pageable) {
         UserDTO owner = userService.findUserByUsername(username);
         if (owner == null) {
             throw new MyException("400", "Username not found");
         }
-        List<Comment> comments = commentRepository.findByOwner(modelMapper.map(owner, User.class), pageable);
-        return comments.stream().map(comment -> modelMapper.map(comment, CommentDTO.class)).collect(Collectors.toList());
+        return toPage(commentRepository.findByOwner(dtoMapper.toUser(owner), pageable));
     }
 
     @Override
-    public List<CommentDTO> findCommentByOwnerAndDeleted(String username, Pageable pageable) {
+    public MappedPage<CommentDTO> findCommentByOwnerAndDeleted(String username, Pageable pageable) {
         UserDTO owner = userService.findUserByUsername(username);
         if (owner == null) {
             throw new MyException("400", "Username not found");
         }
-        List<Comment> comments = commentRepository.findByOwnerAndDeleted(modelMapper.map(owner, User.class), false, pageable);
-        return comments.stream().map(comment -> modelMapper.map(comment, CommentDTO.class)).collect(Collectors.toList());
+        return toPage(commentRepository.findByOwnerAndDeleted(dtoMapper.toUser(owner), false, pageable));
     }
 
     @Override
-    public List<CommentDTO> findCommentByPost(String postID, Pageable pageable) {
-        PostDTO postDTO = postService.findPostByID(postID);
-        if (postDTO == null) {
+    public MappedPage<CommentDTO> findCommentByPost(String postID, Pageable pageable) {
+        if (!postService.existsPostByID(postID)) {
             throw new MyException("400", "Post not found");
         }
-        List<Comment> comments = commentRepository.findByPost(modelMapper.map(postDTO, Post.class), pageable);
-        return comments.stream().map(comment -> modelMapper.map(comment, CommentDTO.class)).collect(Collectors.toList());
+        return toPage(commentRepository.findByPost(postService.getPostReference(postID), pageable));
     }
 
     @Override
-    public List<CommentDTO> findCommentByPostAndDeleted(String postID, Pageable pageable) {
-        PostDTO postDTO = postService.findPostByID(postID);
-        if (postDTO == null) {
+    public MappedPage<CommentDTO> findCommentByPostAndDeleted(String postID, Pageable pageable) {
+        if (!postService.existsPostByID(postID)) {
             throw new MyException("400", "Post not found");
         }
-        List<Comment> comments = commentRepository.findByPostAndDeleted(modelMapper.map(postDTO, Post.class), false, pageable);
-        return comments.stream().map(comment -> modelMapper.map(comment, CommentDTO.class)).collect(Collectors.toList());
+        return toPage(commentRepository.findByPostAndDeleted(postService.getPostReference(postID), false, pageable));
     }
 
     @Override
-    public List<CommentDTO> findCommentByCreateDate(LocalDate createDate, Pageable pageable) {
+    public MappedPage<CommentDTO> findCommentByCreateDate(LocalDate createDate, Pageable pageable) {
         // Because create date save as LocalDateTime so need to find comments between start of day to end of day
         LocalDateTime start = createDate.atStartOfDay();
         LocalDateTime end = createDate.atTime(LocalTime.MAX);
-        List<Comment> comments = commentRepository.findByCreateDateBetween(start, end, pageable);
-        return comments.stream().map(comment -> modelMapper.map(comment, CommentDTO.class)).collect(Collectors.toList());
+        return toPage(commentRepository.findByCreateDateBetween(start, end, pageable));
     }
 
     @Override
-    public List<CommentDTO> findCommentByCreateDateAndDeleted(LocalDate createDate, Pageable pageable) {
+    public MappedPage<CommentDTO> findCommentByCreateDateAndDeleted(LocalDate createDate, Pageable pageable) {
         // Because create date save as LocalDateTime so need to find comments between start of day to end of day
         LocalDateTime start = createDate.atStartOfDay();
         LocalDateTime end = createDate.atTime(LocalTime.MAX);
-        List<Comment> comments = commentRepository.findByDeletedAndCreateDateBetween(false, start, end, pageable);
-        return comments.stream().map(comment -> modelMapper.map(comment, CommentDTO.class)).collect(Collectors.toList());
+        return toPage(commentRepository.findByDeletedAndCreateDateBetween(false, start, end, pageable));
+    }
+
+    @Override
+    public MappedPage<CommentDTO> findAllCommentSummary(boolean includeDeleted, Pageable pageable) {
+        return toSummaryPage(commentRepository.findSummaryByDeletedIn(deletedValues(includeDeleted), pageable));
+    }
+
+    @Override
+    public MappedPage<CommentDTO> findCommentSummaryByOwner(String username, boolean includeDeleted, Pageable pageable) {
+        if (userService.findUserByUsername(username) == null) {
+            throw new MyException("400", "Username not found");
+        }
+        return toSummaryPage(commentRepository.findSummaryByOwnerAndDeletedIn(username,
+                deletedValues(includeDeleted), pageable));
+    }
+
+    @Override
+    public MappedPage<CommentDTO> findCommentSummaryByPost(String postID, boolean includeDeleted, Pageable pageable) {
+        if (!postService.existsPostByID(postID)) {
+            throw new MyException("400", "Post not found");
+        }
+        return toSummaryPage(commentRepository.findSummaryByPostAndDeletedIn(postID,
+                deletedValues(includeDeleted), pageable));
+    }
+
+    @Override
+    public MappedPage<CommentDTO> findCommentSummaryByCreateDate(LocalDate createDate, boolean includeDeleted,
+                                                           Pageable pageable) {
+        LocalDateTime start = createDate.atStartOfDay();
+        LocalDateTime end = createDate.atTime(LocalTime.MAX);
+        return toSummaryPage(commentRepository.findSummaryByCreateDateBetweenAndDeletedIn(start, end,
+                deletedValues(includeDeleted), pageable));
+    }
+
+    @Override
+    public MappedPage<CommentDTO> findCommentFeed(String cursor, boolean includeDeleted, int size) {
+        FeedCursor after = FeedCursor.decode(cursor);
+        // Get one more comment than page size to know if there is a next page
+        List<CommentSummary> comments = commentRepository.findSummaryFeed(deletedValues(includeDeleted),
+                after.getCreateDate(), after.getId(), PageRequest.of(0, size + 1));
+        return toFeedPage(comments, size);
+    }
+
+    @Override
+    public MappedPage<CommentDTO> findCommentFeedByOwner(String username, String cursor, boolean includeDeleted,
+                                                         int size) {
+        if (userService.findUserByUsername(username) == null) {
+            throw new MyException("400", "Username not found");
+        }
+        FeedCursor after = FeedCursor.decode(cursor);
+        List<CommentSummary> comments = commentRepository.findSummaryFeedByOwner(username,
+                deletedValues(includeDeleted), after.getCreateDate(), after.getId(), PageRequest.of(0, size + 1));
+        return toFeedPage(comments, size);
+    }
+
+    @Override
+    public MappedPage<CommentDTO> findCommentFeedByPost(String postID, String cursor, boolean includeDeleted,
+                                                        int size) {
+        if (!postService.existsPostByID(postID)) {
+            throw new MyException("400", "Post not found");
+        }
+        FeedCursor after = FeedCursor.decode(cursor);
+        List<CommentSummary> comments = commentRepository.findSummaryFeedByPost(postID,
+                deletedValues(includeDeleted), after.getCreateDate(), after.getId(), PageRequest.of(0, size + 1));
+        return toFeedPage(comments, size);
+    }
+
+    private MappedPage<CommentDTO> toFeedPage(List<CommentSummary> comments, int size) {
+        CursorPage<CommentSummary> feed = CursorPage.of(comments, size,
+                comment -> new FeedCursor(comment.getCreateDate(), comment.getId()));
+        MappedPage<CommentDTO> page = toSummaryPage(feed.getContent());
+        page.setNextCursor(feed.getNextCursor());
+        return page;
+    }
+
+    private MappedPage<CommentDTO> toPage(List<Comment> comments) {
+        return MappedPage.of(comments, Comment::getId, Comment::getModifyDate, dtoMapper::toCommentDTO);
+    }
+
+    private MappedPage<CommentDTO> toSummaryPage(List<CommentSummary> comments) {
+        return MappedPage.of(comments, CommentSummary::getId, CommentSummary::getModifyDate,
+                dtoMapper::toCommentDTO);
+    }
+
+    private List<Boolean> deletedValues(boolean includeDeleted) {
+        return includeDeleted ? ALL_DELETED : NOT_DELETED;
     }
 }
@@ -0,0 +1,56 @@
+package fa.training.blog.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fa.training.blog.repository.CommentRepository;
+import fa.training.blog.repository.PostRepository;
+import fa.training.blog.repository.UserRepository;
+import fa.training.blog.service.CountService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+@Service
+public class CountServiceImpl implements CountService {
+    private static final String POST = "post";
+    private static final String COMMENT = "comment";
+    private static final String NOT_DELETED_COMMENT = "comment-not-deleted";
+    private static final String USER = "user";
+
+    // Totals are only for clients that want to show them (list endpoints return Slice and never count),
+    // so a COUNT(*) runs at most once per "ttl" for each total instead of on every list request
+    private final Cache<String, Long> counts;
+
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    public CountServiceImpl(@Value("${blog.count-cache.ttl:1m}") Duration ttl) {
+        this.counts = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public long countPost() {
+        return counts.get(POST, key -> postRepository.count());
+    }
+
+    @Override
+    public long countComment(boolean includeDeleted) {
+        if (includeDeleted) {
+            return counts.get(COMMENT, key -> commentRepository.count());
+        }
+        return counts.get(NOT_DELETED_COMMENT, key -> commentRepository.countByDeleted(false));
+    }
+
+    @Override
+    public long countUser() {
+        return counts.get(USER, key -> userRepository.count());
+    }
+}
@@ -0,0 +1,95 @@
+package fa.training.blog.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fa.training.blog.dto.PostDTO;
+import fa.training.blog.entity.Post;
+import fa.training.blog.exception.MyException;
+import fa.training.blog.mapper.DtoMapper;
+import fa.training.blog.repository.CommentRepository;
+import fa.training.blog.repository.PostRepository;
+import fa.training.blog.repository.projection.CommentSummary;
+import fa.training.blog.service.ExportService;
+import fa.training.blog.service.ViewCountService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class ExportServiceImpl implements ExportService {
+    private static final List<Boolean> NOT_DELETED = Collections.singletonList(false);
+    private static final List<Boolean> ALL_DELETED = Arrays.asList(false, true);
+
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private ViewCountService viewCountService;
+    @Autowired
+    private DtoMapper dtoMapper;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    // Stream of repository is read in this transaction
+    @Transactional(readOnly = true)
+    public long exportPosts(OutputStream output) {
+        try (Stream<Post> posts = postRepository.streamAllBy()) {
+            long written = 0;
+            for (Iterator<Post> iterator = posts.iterator(); iterator.hasNext(); written++) {
+                Post post = iterator.next();
+                PostDTO postDTO = dtoMapper.toPostDTO(post);
+                // Same view as GET /post, with views not written to database yet
+                postDTO.setView(postDTO.getView() + (int) viewCountService.getPendingViews(post.getId()));
+                writeLine(postDTO, output);
+                // Post and its owner are not needed anymore, keep persistence context small
+                entityManager.detach(post.getOwner());
+                entityManager.detach(post);
+            }
+            return written;
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportComments(String owner, String post, boolean includeDeleted, OutputStream output) {
+        List<Boolean> deleted = includeDeleted ? ALL_DELETED : NOT_DELETED;
+        Stream<CommentSummary> comments;
+        if (owner != null) {
+            comments = commentRepository.streamSummaryByOwnerAndDeletedIn(owner, deleted);
+        } else if (post != null) {
+            comments = commentRepository.streamSummaryByPostAndDeletedIn(post, deleted);
+        } else {
+            comments = commentRepository.streamSummaryByDeletedIn(deleted);
+        }
+        try (comments) {
+            long written = 0;
+            for (Iterator<CommentSummary> iterator = comments.iterator(); iterator.hasNext(); written++) {
+                writeLine(dtoMapper.toCommentDTO(iterator.next()), output);
+            }
+            return written;
+        }
+    }
+
+    private void writeLine(Object value, OutputStream output) {
+        try {
+            output.write(objectMapper.writeValueAsBytes(value));
+            output.write('\n');
+        } catch (IOException e) {
+            // Client went away, stop reading from database
+            throw new MyException("407", "Cannot write export: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package fa.training.blog.service.impl;
+
+import fa.training.blog.service.IdMigrationService;
+import fa.training.blog.service.PostResponseCache;
+import fa.training.blog.service.PostSearchService;
+import fa.training.blog.service.ViewCountService;
+import fa.training.blog.utils.SnowflakeIdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class IdMigrationServiceImpl implements IdMigrationService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdMigrationServiceImpl.class);
+    // Rows still keyed by random UUID (36 characters), new IDs have 13
+    private static final String SELECT_LEGACY_POSTS =
+            "SELECT id, create_date FROM post WHERE CHAR_LENGTH(id) = 36 ORDER BY create_date, id";
+    private static final String SELECT_LEGACY_COMMENTS =
+            "SELECT id, create_date FROM comment WHERE CHAR_LENGTH(id) = 36 ORDER BY create_date, id";
+    // Post is copied with its new ID, comments are moved to it, then old row is deleted,
+    // so foreign key of comment is never broken
+    private static final String COPY_POST = "INSERT INTO post (id, title, content, create_date, modify_date, view, "
+            + "owner_username) SELECT ?, title, content, create_date, modify_date, view, owner_username "
+            + "FROM post WHERE id = ?";
+    private static final String MOVE_COMMENTS = "UPDATE comment SET post_id = ? WHERE post_id = ?";
+    private static final String DELETE_POST = "DELETE FROM post WHERE id = ?";
+    private static final String UPDATE_COMMENT_ID = "UPDATE comment SET id = ? WHERE id = ?";
+    // One migration at a time
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ViewCountService viewCountService;
+    @Autowired
+    private PostSearchService postSearchService;
+    @Autowired
+    private PostResponseCache postResponseCache;
+
+    @Override
+    public int migrateLegacyIds() {
+        lock.lock();
+        try {
+            // Views counted in memory are kept by post ID, write them before IDs change
+            viewCountService.flush();
+
+            int migrated = 0;
+            for (String[] post : withNewIds(SELECT_LEGACY_POSTS)) {
+                String oldId = post[0];
+                String newId = post[1];
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update(COPY_POST, newId, oldId);
+                        jdbcTemplate.update(MOVE_COMMENTS, newId, oldId);
+                        jdbcTemplate.update(DELETE_POST, oldId);
+                    });
+                } catch (DataAccessException e) {
+                    // A comment was added to this post meanwhile, post keeps its ID until next run
+                    LOGGER.warn("Cannot migrate ID of post {}: {}", oldId, e.getMessage());
+                    continue;
+                }
+                viewCountService.discard(oldId);
+                postResponseCache.invalidate(oldId);
+                migrated++;
+            }
+            // Nothing refers to comment ID, comments are updated in place
+            List<Object[]> comments = new ArrayList<>();
+            for (String[] comment : withNewIds(SELECT_LEGACY_COMMENTS)) {
+                comments.add(new Object[]{comment[1], comment[0]});
+            }
+            if (!comments.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_COMMENT_ID, comments);
+                migrated += comments.size();
+            }
+
+            if (migrated > 0) {
+                // Rows were changed behind Hibernate, and search index still has old post IDs
+                entityManagerFactory.getCache().evictAll();
+                postSearchService.rebuild();
+            }
+            LOGGER.info("Migrated ID of {} posts and comments", migrated);
+            return migrated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<String[]> withNewIds(String selectLegacy) {
+        List<String[]> rows = new ArrayList<>();
+        long lastTimestamp = -1;
+        int sequence = 0;
+        for (Object[] row : jdbcTemplate.query(selectLegacy,
+                (rs, rowNum) -> new Object[]{rs.getString("id"), rs.getTimestamp("create_date")})) {
+            // Rows are in order of create date, rows created before EPOCH or without date get the first IDs
+            Timestamp createDate = (Timestamp) row[1];
+            long timestamp = createDate == null ? SnowflakeIdGenerator.EPOCH
+                                                : Math.max(createDate.getTime(), SnowflakeIdGenerator.EPOCH);
+            if (timestamp <= lastTimestamp) {
+                // Same millisecond as previous row: next sequence, next millisecond when all 4096 are used
+                timestamp = lastTimestamp;
+                sequence++;
+                if (sequence > 4095) {
+                    timestamp++;
+                    sequence = 0;
+                }
+            } else {
+                sequence = 0;
+            }
+            lastTimestamp = timestamp;
+            String newId = SnowflakeIdGenerator.compose(timestamp, SnowflakeIdGenerator.MIGRATED_WORKER_ID, sequence);
+            rows.add(new String[]{(String) row[0], newId});
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,158 @@
+package fa.training.blog.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fa.training.blog.dto.PostDTO;
+import fa.training.blog.exception.MyException;
+import fa.training.blog.model.ResponseObject;
+import fa.training.blog.service.PostResponseCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Service
+public class PostResponseCacheImpl implements PostResponseCache {
+    // Post is serialized with this view, then JSON is cut around it so any view can be put back in
+    private static final int VIEW_MARKER = Integer.MIN_VALUE;
+    private static final byte[] VIEW_FIELD = "\"view\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VIEW_MARKER_FIELD = ("\"view\":" + VIEW_MARKER).getBytes(StandardCharsets.UTF_8);
+
+    private static final int GENERATION_STRIPES = 256;
+
+    // Weighed by size of JSON, so a few long posts cannot push out many short ones
+    private final Cache<String, CachedResponse> responses;
+    // Raised by invalidate, per stripe of post ids so it stays bounded. A post read before an invalidate of its
+    // stripe is not cached (a post sharing the stripe only misses one cache fill).
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public PostResponseCacheImpl(@Value("${blog.post-response-cache.max-size:16MB}") DataSize maxSize,
+                                 @Value("${blog.post-response-cache.ttl:10m}") Duration ttl) {
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String id, CachedResponse response) -> response.size())
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public byte[] get(String postID, long recordedViews) {
+        CachedResponse response = responses.getIfPresent(postID);
+        if (response == null) {
+            return null;
+        }
+        // Views recorded after the post was cached are added to the view it was cached with
+        return response.render(response.view + recordedViews - response.recordedViews);
+    }
+
+    @Override
+    public LocalDateTime getModifyDate(String postID) {
+        CachedResponse response = responses.getIfPresent(postID);
+        return response == null ? null : response.modifyDate;
+    }
+
+    @Override
+    public long generation(String postID) {
+        return generations.get(stripe(postID));
+    }
+
+    @Override
+    public byte[] put(PostDTO post, long recordedViews, long generation) {
+        int view = post.getView();
+        post.setView(VIEW_MARKER);
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(new ResponseObject(post));
+        } catch (JsonProcessingException e) {
+            throw new MyException("407", "Cannot serialize post: " + e.getMessage());
+        } finally {
+            post.setView(view);
+        }
+        int markerAt = indexOf(json, VIEW_MARKER_FIELD);
+        CachedResponse response = new CachedResponse(
+                Arrays.copyOfRange(json, 0, markerAt + VIEW_FIELD.length),
+                Arrays.copyOfRange(json, markerAt + VIEW_MARKER_FIELD.length, json.length),
+                view, recordedViews, post.getModifyDate());
+        // Checked in the lock of the entry, so it cannot pass between the generation raised and the entry removed
+        responses.asMap().compute(post.getId(),
+                (id, cached) -> generations.get(stripe(id)) == generation ? response : cached);
+        return response.render(view);
+    }
+
+    @Override
+    public void rebase(String postID, long removedViews) {
+        // Changed in place, replacing the entry would restart its time to live
+        CachedResponse response = responses.getIfPresent(postID);
+        if (response != null) {
+            response.recordedViews -= removedViews;
+        }
+    }
+
+    @Override
+    public void invalidate(String postID) {
+        responses.asMap().compute(postID, (id, cached) -> {
+            generations.incrementAndGet(stripe(id));
+            return null;
+        });
+    }
+
+    private static int stripe(String postID) {
+        return Math.floorMod(postID.hashCode(), GENERATION_STRIPES);
+    }
+
+    private static int indexOf(byte[] source, byte[] target) {
+        // Quotes inside JSON strings are escaped, so "view": can only be the field name
+        outer:
+        for (int i = 0; i <= source.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (source[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new MyException("407", "Cannot find view of serialized post");
+    }
+
+    private static class CachedResponse {
+        // JSON before and after the value of "view"
+        private final byte[] head;
+        private final byte[] tail;
+        // View of post when it was cached, including views pending at that time
+        private final long view;
+        // Only lowered by rebase (from the flush of views, one at a time)
+        private volatile long recordedViews;
+        private final LocalDateTime modifyDate;
+
+        private CachedResponse(byte[] head, byte[] tail, long view, long recordedViews, LocalDateTime modifyDate) {
+            this.head = head;
+            this.tail = tail;
+            this.view = view;
+            this.recordedViews = recordedViews;
+            this.modifyDate = modifyDate;
+        }
+
+        private int size() {
+            return head.length + tail.length;
+        }
+
+        private byte[] render(long view) {
+            byte[] value = Long.toString(view).getBytes(StandardCharsets.US_ASCII);
+            byte[] json = Arrays.copyOf(head, head.length + value.length + tail.length);
+            System.arraycopy(value, 0, json, head.length, value.length);
+            System.arraycopy(tail, 0, json, head.length + value.length, tail.length);
+            return json;
+        }
+    }
+}
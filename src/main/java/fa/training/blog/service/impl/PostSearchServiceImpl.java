@@ -0,0 +1,259 @@
+package fa.training.blog.service.impl;
+
+import fa.training.blog.dto.PostDTO;
+import fa.training.blog.entity.Post;
+import fa.training.blog.exception.MyException;
+import fa.training.blog.repository.PostRepository;
+import fa.training.blog.service.PostSearchService;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class PostSearchServiceImpl implements PostSearchService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PostSearchServiceImpl.class);
+    private static final String ID = "id";
+    private static final String TITLE = "title";
+    private static final String CONTENT = "content";
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    // Lucene index of post title and content kept in a local directory, so search does not scan post table
+    private final Path indexDir;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private Directory directory;
+    private IndexWriter writer;
+    // Gives searchers that see the latest changes of writer (after refresh), without committing to disk
+    private SearcherManager searcherManager;
+    // Held by every change of writer. Rebuild keeps it until the new index is committed, so no refresh and no
+    // scheduled commit sees the index half rebuilt, and a post saved meanwhile is indexed after it.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public PostSearchServiceImpl(@Value("${blog.search.index-dir:./data/post-index}") Path indexDir) {
+        this.indexDir = indexDir;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = FSDirectory.open(indexDir);
+        openWriter();
+    }
+
+    private void openWriter() throws IOException {
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    // Cold start: index is empty (new server or deleted directory) but database has posts
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (writer.getDocStats().numDocs == 0 && postRepository.count() > 0) {
+            LOGGER.info("Post search index is empty, rebuilt with {} posts", rebuild());
+        }
+    }
+
+    // Changes are searchable right after refresh, commit only makes them survive a crash
+    @Scheduled(fixedDelayString = "${blog.search.commit-interval:10000}")
+    public void commit() {
+        lock.lock();
+        try {
+            if (writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Cannot commit post search index: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void index(PostDTO post) {
+        lock.lock();
+        try {
+            writer.updateDocument(new Term(ID, post.getId()), toDocument(post.getId(), post.getTitle(), post.getContent()));
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            // Post is saved anyway, index can be fixed with rebuild
+            LOGGER.warn("Cannot index post {}: {}", post.getId(), e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(String postID) {
+        lock.lock();
+        try {
+            writer.deleteDocuments(new Term(ID, postID));
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            LOGGER.warn("Cannot remove post {} from index: {}", postID, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> search(String text, int page, int size) {
+        Query query = buildQuery(text);
+        List<String> ids = new ArrayList<>();
+        if (query == null) {
+            return ids;
+        }
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                int start = page * size;
+                ScoreDoc[] hits = searcher.search(query, start + size).scoreDocs;
+                for (int i = start; i < hits.length; i++) {
+                    ids.add(searcher.doc(hits[i].doc).get(ID));
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new MyException("407", "Cannot search posts: " + e.getMessage());
+        }
+        return ids;
+    }
+
+    @Override
+    public int rebuild() {
+        lock.lock();
+        try {
+            // Changes made before the rebuild are kept if it fails
+            writer.commit();
+            writer.deleteAll();
+            // Own transaction, not the one of the caller (open-in-view keeps the persistence context of the request)
+            Integer count = transactionTemplate.execute(status -> indexAllPosts());
+            writer.commit();
+            searcherManager.maybeRefresh();
+            return count;
+        } catch (IOException | UncheckedIOException e) {
+            rollback();
+            throw new MyException("407", "Cannot rebuild post search index: " + e.getMessage());
+        } catch (RuntimeException e) {
+            rollback();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int indexAllPosts() {
+        int count = 0;
+        Pageable pageable = PageRequest.of(0, REBUILD_BATCH_SIZE, Sort.by(ID));
+        Slice<Post> posts;
+        do {
+            posts = postRepository.findAllBy(pageable);
+            for (Post post : posts) {
+                try {
+                    // Same as index(), a post is never in the index twice
+                    writer.updateDocument(new Term(ID, post.getId()),
+                            toDocument(post.getId(), post.getTitle(), post.getContent()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count++;
+            }
+            // Posts of indexed pages are not needed anymore, only one page is kept in memory
+            entityManager.clear();
+            pageable = posts.nextPageable();
+        } while (posts.hasNext());
+        return count;
+    }
+
+    // Drops the half rebuilt index, rollback closes writer so it is opened again on the last commit
+    private void rollback() {
+        try {
+            searcherManager.close();
+            writer.rollback();
+            openWriter();
+        } catch (IOException e) {
+            LOGGER.error("Cannot roll back post search index: {}", e.getMessage());
+        }
+    }
+
+    private Document toDocument(String id, String title, String content) {
+        Document document = new Document();
+        document.add(new StringField(ID, id, Field.Store.YES));
+        document.add(new TextField(TITLE, title == null ? "" : title, Field.Store.NO));
+        document.add(new TextField(CONTENT, content == null ? "" : content, Field.Store.NO));
+        return document;
+    }
+
+    // Every word must match title or content, exactly or as prefix. Exact match in title scores the most.
+    private Query buildQuery(String text) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        boolean hasTerm = false;
+        try (TokenStream tokens = analyzer.tokenStream(CONTENT, text)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                String word = term.toString();
+                Query anyField = new BooleanQuery.Builder()
+                        .add(new BoostQuery(new TermQuery(new Term(TITLE, word)), 4f), BooleanClause.Occur.SHOULD)
+                        .add(new BoostQuery(new PrefixQuery(new Term(TITLE, word)), 2f), BooleanClause.Occur.SHOULD)
+                        .add(new TermQuery(new Term(CONTENT, word)), BooleanClause.Occur.SHOULD)
+                        .add(new BoostQuery(new PrefixQuery(new Term(CONTENT, word)), 0.5f), BooleanClause.Occur.SHOULD)
+                        .build();
+                query.add(anyField, BooleanClause.Occur.MUST);
+                hasTerm = true;
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new MyException("407", "Cannot search posts: " + e.getMessage());
+        }
+        return hasTerm ? query.build() : null;
+    }
+}
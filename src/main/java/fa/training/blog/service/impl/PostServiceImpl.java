@@ -5,21 +5,33 @@ import fa.training.blog.dto.UserDTO;
 import fa.training.blog.entity.Post;
 import fa.training.blog.entity.User;
 import fa.training.blog.exception.MyException;
+import fa.training.blog.mapper.DtoMapper;
+import fa.training.blog.model.CursorPage;
+import fa.training.blog.model.MappedPage;
 import fa.training.blog.repository.PostRepository;
+import fa.training.blog.repository.projection.PostSummary;
+import fa.training.blog.service.PostResponseCache;
+import fa.training.blog.service.PostSearchService;
 import fa.training.blog.service.PostService;
 import fa.training.blog.service.UserService;
-import org.modelmapper.ModelMapper;
+import fa.training.blog.service.ViewCountService;
+import fa.training.blog.utils.FeedCursor;
+import fa.training.blog.utils.IdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,7 +41,15 @@ public class PostServiceImpl implements PostService {
     @Autowired
     private UserService userService;
     @Autowired
-    private ModelMapper modelMapper;
+    private DtoMapper dtoMapper;
+    @Autowired
+    private IdGenerator idGenerator;
+    @Autowired
+    private ViewCountService viewCountService;
+    @Autowired
+    private PostSearchService postSearchService;
+    @Autowired
+    private PostResponseCache postResponseCache;
 
     @Override
     public PostDTO createPost(PostDTO postDTO, String username) {
@@ -40,27 +60,32 @@ public class PostServiceImpl implements PostService {
         }
         postDTO.setOwner(owner);
 
-        // Set ID using UUID
-        UUID id = UUID.randomUUID();
-        postDTO.setId(id.toString());
+        // Set ID, time-ordered so new rows are appended at the end of primary key index
+        postDTO.setId(idGenerator.nextId());
 
         // Set view and modify date
         postDTO.setModifyDate(LocalDateTime.now());
         postDTO.setView(0);
 
-        Post savedPost = postRepository.save(modelMapper.map(postDTO, Post.class));
-        return modelMapper.map(savedPost, PostDTO.class);
+        Post savedPost = postRepository.save(dtoMapper.toPost(postDTO));
+        PostDTO responsePost = dtoMapper.toPostDTO(savedPost);
+        postSearchService.index(responsePost);
+        return responsePost;
     }
 
     @Override
     public PostDTO editPost(PostDTO postDTO) {
-        PostDTO postToEdit = findPostByID(postDTO.getId());
-        if (postToEdit != null){
+        Optional<Post> post = postRepository.findById(postDTO.getId());
+        if (post.isPresent()){
+            PostDTO postToEdit = dtoMapper.toPostDTO(post.get());
             postToEdit.setModifyDate(LocalDateTime.now());
             postToEdit.setContent(postDTO.getContent());
             postToEdit.setTitle(postToEdit.getTitle());
-            Post editedPost = postRepository.saveAndFlush(modelMapper.map(postToEdit, Post.class));
-            return modelMapper.map(editedPost, PostDTO.class);
+            Post editedPost = postRepository.saveAndFlush(dtoMapper.toPost(postToEdit));
+            PostDTO responsePost = dtoMapper.toPostDTO(editedPost);
+            postSearchService.index(responsePost);
+            postResponseCache.invalidate(responsePost.getId());
+            return responsePost;
         } else {
             throw new MyException("400", "Post not found");
         }
@@ -68,9 +93,13 @@ public class PostServiceImpl implements PostService {
 
     @Override
     public PostDTO deletePost(String id) {
-        PostDTO postToDelete = findPostByID(id);
-        if (postToDelete != null){
+        Optional<Post> post = postRepository.findById(id);
+        if (post.isPresent()){
+            PostDTO postToDelete = dtoMapper.toPostDTO(post.get());
             postRepository.deleteById(id);
+            postResponseCache.invalidate(id);
+            viewCountService.discard(id);
+            postSearchService.remove(id);
             return postToDelete;
         }else {
             throw new MyException("400", "Post not found");
@@ -78,30 +107,30 @@ public class PostServiceImpl implements PostService {
     }
 
     @Override
-    public List<PostDTO> findAllPost(Pageable pageable) {
-        Page<Post> posts = postRepository.findAll(pageable);
-        return posts.stream().map(post -> modelMapper.map(post, PostDTO.class)).collect(Collectors.toList());
+    public MappedPage<PostDTO> findAllPost(Pageable pageable) {
+        Slice<Post> posts = postRepository.findAllBy(pageable);
+        MappedPage<PostDTO> page = toPage(posts.getContent());
+        page.setHasNext(posts.hasNext());
+        return page;
     }
 
     @Override
-    public List<PostDTO> findPostByOwner(String username, Pageable pageable) {
+    public MappedPage<PostDTO> findPostByOwner(String username, Pageable pageable) {
         UserDTO owner = userService.findUserByUsername(username);
         if (owner == null) {
             throw new MyException("400", "Username not found");
         }
-        List<Post> posts = postRepository.findByOwner(modelMapper.map(owner, User.class), pageable);
-        return posts.stream().map(post -> modelMapper.map(post, PostDTO.class)).collect(Collectors.toList());
+        return toPage(postRepository.findByOwner(dtoMapper.toUser(owner), pageable));
     }
 
     @Override
     public PostDTO findPostByID(String id) {
         Optional<Post> post = postRepository.findById(id);
         if (post.isPresent()) {
-            Post postFromDB = post.get();
-            // Update post has one more view
-            postFromDB.setView(postFromDB.getView() + 1);
-            PostDTO responsePost = modelMapper.map(postFromDB, PostDTO.class);
-            postRepository.saveAndFlush(postFromDB);
+            // Count one more view in memory, it is written to database later in batch by ViewCountService
+            viewCountService.recordView(id);
+            PostDTO responsePost = dtoMapper.toPostDTO(post.get());
+            responsePost.setView(responsePost.getView() + (int) viewCountService.getPendingViews(id));
             return responsePost;
         } else {
             return null;
@@ -109,16 +138,134 @@ public class PostServiceImpl implements PostService {
     }
 
     @Override
-    public List<PostDTO> findPostByCreateDate(LocalDate createDate, Pageable pageable) {
+    public byte[] findPostResponseByID(String id) {
+        // Cached response only needs the view count patched in, with the view being counted now
+        byte[] response = postResponseCache.get(id, viewCountService.getRecordedViews(id) + 1);
+        if (response != null) {
+            viewCountService.recordView(id);
+            return response;
+        }
+        // Taken before the read, an edit or delete committed meanwhile keeps the post read out of cache
+        long generation = postResponseCache.generation(id);
+        PostDTO post = findPostByID(id);
+        if (post == null) {
+            return null;
+        }
+        return postResponseCache.put(post, viewCountService.getRecordedViews(id), generation);
+    }
+
+    @Override
+    public LocalDateTime findPostModifyDate(String id) {
+        // Hot posts are in response cache, database is only read for the others
+        LocalDateTime modifyDate = postResponseCache.getModifyDate(id);
+        return modifyDate != null ? modifyDate : postRepository.findModifyDateById(id).orElse(null);
+    }
+
+    @Override
+    public void recordPostView(String id) {
+        viewCountService.recordView(id);
+    }
+
+    @Override
+    public boolean existsPostByID(String id) {
+        return postRepository.existsById(id);
+    }
+
+    @Override
+    public Post getPostReference(String id) {
+        return postRepository.getReferenceById(id);
+    }
+
+    @Override
+    public List<Post> getPosts(Collection<String> ids) {
+        return postRepository.findAllById(ids);
+    }
+
+    @Override
+    public MappedPage<PostDTO> findPostByCreateDate(LocalDate createDate, Pageable pageable) {
         LocalDateTime start = createDate.atStartOfDay();
         LocalDateTime end = createDate.atTime(LocalTime.MAX);
-        List<Post> posts = postRepository.findByCreateDateBetween(start, end, pageable);
-        return posts.stream().map(post -> modelMapper.map(post, PostDTO.class)).collect(Collectors.toList());
+        return toPage(postRepository.findByCreateDateBetween(start, end, pageable));
+    }
+
+    @Override
+    public MappedPage<PostDTO> findPostByTitle(String title, Pageable pageable) {
+        return toPage(postRepository.findByTitleIgnoreCaseContains(title, pageable));
     }
 
     @Override
-    public List<PostDTO> findPostByTitle(String title, Pageable pageable) {
-        List<Post> posts = postRepository.findByTitleIgnoreCaseContains(title, pageable);
-        return posts.stream().map(post -> modelMapper.map(post, PostDTO.class)).collect(Collectors.toList());
+    public MappedPage<PostDTO> searchPost(String text, Pageable pageable) {
+        List<String> ids = postSearchService.search(text, pageable.getPageNumber(), pageable.getPageSize());
+        // Load found posts in one query, then put them back in order of search rank
+        Map<String, Post> posts = postRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        return toPage(ids.stream()
+                .map(posts::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public int rebuildSearchIndex() {
+        return postSearchService.rebuild();
+    }
+
+    @Override
+    public MappedPage<PostDTO> findAllPostSummary(Pageable pageable) {
+        return toSummaryPage(postRepository.findAllSummary(pageable));
+    }
+
+    @Override
+    public MappedPage<PostDTO> findPostSummaryByOwner(String username, Pageable pageable) {
+        if (userService.findUserByUsername(username) == null) {
+            throw new MyException("400", "Username not found");
+        }
+        return toSummaryPage(postRepository.findSummaryByOwner(username, pageable));
+    }
+
+    @Override
+    public MappedPage<PostDTO> findPostSummaryByCreateDate(LocalDate createDate, Pageable pageable) {
+        LocalDateTime start = createDate.atStartOfDay();
+        LocalDateTime end = createDate.atTime(LocalTime.MAX);
+        return toSummaryPage(postRepository.findSummaryByCreateDateBetween(start, end, pageable));
+    }
+
+    @Override
+    public MappedPage<PostDTO> findPostSummaryByTitle(String title, Pageable pageable) {
+        return toSummaryPage(postRepository.findSummaryByTitleIgnoreCaseContains(title, pageable));
+    }
+
+    @Override
+    public MappedPage<PostDTO> findPostFeed(String cursor, int size) {
+        FeedCursor after = FeedCursor.decode(cursor);
+        // Get one more post than page size to know if there is a next page
+        List<Post> posts = postRepository.findFeed(after.getCreateDate(), after.getId(), PageRequest.of(0, size + 1));
+        return toFeedPage(posts, size);
+    }
+
+    @Override
+    public MappedPage<PostDTO> findPostFeedByOwner(String username, String cursor, int size) {
+        if (userService.findUserByUsername(username) == null) {
+            throw new MyException("400", "Username not found");
+        }
+        FeedCursor after = FeedCursor.decode(cursor);
+        List<Post> posts = postRepository.findFeedByOwner(username, after.getCreateDate(), after.getId(),
+                PageRequest.of(0, size + 1));
+        return toFeedPage(posts, size);
+    }
+
+    private MappedPage<PostDTO> toFeedPage(List<Post> posts, int size) {
+        CursorPage<Post> feed = CursorPage.of(posts, size, post -> new FeedCursor(post.getCreateDate(), post.getId()));
+        MappedPage<PostDTO> page = toPage(feed.getContent());
+        page.setNextCursor(feed.getNextCursor());
+        return page;
+    }
+
+    private MappedPage<PostDTO> toPage(List<Post> posts) {
+        return MappedPage.of(posts, Post::getId, Post::getModifyDate, dtoMapper::toPostDTO);
+    }
+
+    private MappedPage<PostDTO> toSummaryPage(List<PostSummary> posts) {
+        return MappedPage.of(posts, PostSummary::getId, PostSummary::getModifyDate, dtoMapper::toPostDTO);
     }
 }
@@ -0,0 +1,260 @@
+package fa.training.blog.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fa.training.blog.dto.UserDTO;
+import fa.training.blog.entity.User;
+import fa.training.blog.exception.MyException;
+import fa.training.blog.mapper.DtoMapper;
+import fa.training.blog.model.ResponseObject;
+import fa.training.blog.repository.UserRepository;
+import fa.training.blog.security.BoundedPasswordEncoder;
+import fa.training.blog.service.UserImportService;
+import fa.training.blog.service.UserNameIndexService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@Service
+public class UserImportServiceImpl implements UserImportService {
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private DtoMapper dtoMapper;
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+    @Autowired
+    private UserNameIndexService userNameIndexService;
+    @Autowired
+    private Validator validator;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Value("${blog.user-import.batch-size:500}")
+    private int batchSize;
+
+    @Override
+    public Map<String, Integer> importUsers(Reader reader, boolean csv, Consumer<ResponseObject> listener) {
+        ImportRun run = new ImportRun(listener);
+        BufferedReader lines = new BufferedReader(reader);
+        try {
+            int lineNumber = 0;
+            List<String> columns = null;
+            if (csv) {
+                String header = lines.readLine();
+                lineNumber++;
+                columns = header == null ? List.of() : parseCsvLine(header);
+            }
+            List<ImportLine> batch = new ArrayList<>(batchSize);
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                run.read++;
+                try {
+                    UserDTO userDTO = csv ? toUserDTO(columns, parseCsvLine(line))
+                            : objectMapper.readValue(line, UserDTO.class);
+                    batch.add(new ImportLine(lineNumber, userDTO));
+                } catch (IOException | IllegalArgumentException e) {
+                    run.reject(lineNumber, "406", "Cannot read user");
+                }
+                if (batch.size() == batchSize) {
+                    importBatch(batch, run);
+                    batch.clear();
+                    run.reportProgress();
+                }
+            }
+            if (!batch.isEmpty()) {
+                importBatch(batch, run);
+            }
+        } catch (IOException e) {
+            throw new MyException("407", "Cannot read users: " + e.getMessage());
+        }
+        return run.counts();
+    }
+
+    private void importBatch(List<ImportLine> batch, ImportRun run) {
+        // Validate, and keep only first user of a username or email repeated in the batch
+        List<ImportLine> valid = new ArrayList<>(batch.size());
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (ImportLine importLine : batch) {
+            UserDTO userDTO = importLine.userDTO;
+            Set<ConstraintViolation<UserDTO>> violations = validator.validate(userDTO);
+            if (!violations.isEmpty()) {
+                ConstraintViolation<UserDTO> violation = violations.iterator().next();
+                run.reject(importLine.lineNumber, "406", violation.getPropertyPath() + " " + violation.getMessage());
+            } else if (!usernames.add(userDTO.getUsername())) {
+                run.reject(importLine.lineNumber, "405", "Username existed");
+            } else if (!emails.add(userDTO.getEmail())) {
+                run.reject(importLine.lineNumber, "405", "Email used");
+            } else {
+                valid.add(importLine);
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        // One query for usernames and one for emails already in database
+        Set<String> existingUsernames = new HashSet<>(userRepository.findExistingUsernames(usernames));
+        Set<String> existingEmails = new HashSet<>(userRepository.findExistingEmails(emails));
+        List<ImportLine> toInsert = new ArrayList<>(valid.size());
+        for (ImportLine importLine : valid) {
+            if (existingUsernames.contains(importLine.userDTO.getUsername())) {
+                run.reject(importLine.lineNumber, "405", "Username existed");
+            } else if (existingEmails.contains(importLine.userDTO.getEmail())) {
+                run.reject(importLine.lineNumber, "405", "Email used");
+            } else {
+                toInsert.add(importLine);
+            }
+        }
+        if (toInsert.isEmpty()) {
+            return;
+        }
+
+        List<String> encodedPasswords = passwordEncoder.encodeAll(toInsert.stream()
+                .map(importLine -> importLine.userDTO.getPassword())
+                .collect(Collectors.toList()));
+        List<User> users = new ArrayList<>(toInsert.size());
+        for (int i = 0; i < toInsert.size(); i++) {
+            UserDTO userDTO = toInsert.get(i).userDTO;
+            userDTO.setPassword(encodedPasswords.get(i));
+            users.add(dtoMapper.toUser(userDTO));
+        }
+        try {
+            userRepository.persistAll(users);
+        } catch (DataAccessException e) {
+            // Batch is inserted in one transaction, e.g. a user signed up with one of these usernames meanwhile
+            for (ImportLine importLine : toInsert) {
+                run.reject(importLine.lineNumber, "407", "Cannot save user: " + e.getMessage());
+            }
+            return;
+        }
+        for (User user : users) {
+            userNameIndexService.put(user.getUsername(), user.getFirstName(), user.getLastName(), user.getRole());
+        }
+        run.imported += users.size();
+    }
+
+    // Columns are named by header line, unknown columns are ignored
+    private UserDTO toUserDTO(List<String> columns, List<String> values) {
+        if (values.size() != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " values");
+        }
+        UserDTO userDTO = new UserDTO();
+        for (int i = 0; i < columns.size(); i++) {
+            String value = values.get(i);
+            switch (columns.get(i)) {
+                case "username":
+                    userDTO.setUsername(value);
+                    break;
+                case "password":
+                    userDTO.setPassword(value);
+                    break;
+                case "email":
+                    userDTO.setEmail(value);
+                    break;
+                case "firstName":
+                    userDTO.setFirstName(value);
+                    break;
+                case "lastName":
+                    userDTO.setLastName(value);
+                    break;
+                case "role":
+                    userDTO.setRole(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return userDTO;
+    }
+
+    // Values are separated by comma, a value with comma or quote is in double quotes (quote written twice).
+    // A value cannot span several lines.
+    private List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unclosed quote");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static class ImportLine {
+        private final int lineNumber;
+        private final UserDTO userDTO;
+
+        private ImportLine(int lineNumber, UserDTO userDTO) {
+            this.lineNumber = lineNumber;
+            this.userDTO = userDTO;
+        }
+    }
+
+    // Counts of one import, sent to listener as it goes
+    private static class ImportRun {
+        private final Consumer<ResponseObject> listener;
+        private int read;
+        private int imported;
+        private int rejected;
+
+        private ImportRun(Consumer<ResponseObject> listener) {
+            this.listener = listener;
+        }
+
+        private void reject(int lineNumber, String code, String message) {
+            rejected++;
+            listener.accept(new ResponseObject(code, "Line " + lineNumber + ": " + message));
+        }
+
+        private void reportProgress() {
+            listener.accept(new ResponseObject(counts()));
+        }
+
+        private Map<String, Integer> counts() {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            counts.put("read", read);
+            counts.put("imported", imported);
+            counts.put("rejected", rejected);
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package fa.training.blog.service.impl;
+
+import fa.training.blog.entity.User;
+import fa.training.blog.repository.UserRepository;
+import fa.training.blog.service.UserNameIndexService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+public class UserNameIndexServiceImpl implements UserNameIndexService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserNameIndexServiceImpl.class);
+    private static final int GRAM = 3;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Comparator<IndexedUser> ORDER = Comparator.comparing((IndexedUser user) -> user.role)
+            .thenComparing(user -> user.username);
+
+    // All indexed users by username, names are kept normalized
+    private final Map<String, IndexedUser> users = new ConcurrentHashMap<>();
+    // Trigram -> usernames having it in first name (or last name). A part of name with 3 letters or more
+    // is only checked against users having all its trigrams instead of all users.
+    private final Map<String, Set<String>> firstNameGrams = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> lastNameGrams = new ConcurrentHashMap<>();
+    // Changes of the index are made one at a time, rebuild holds it while reading users from database
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        LOGGER.info("User name index built with {} users", rebuild());
+    }
+
+    @Override
+    public void put(String username, String firstName, String lastName, String role) {
+        lock.lock();
+        try {
+            remove(username);
+            IndexedUser user = new IndexedUser(username, normalize(firstName), normalize(lastName), role);
+            grams(user.firstName).forEach(gram -> firstNameGrams.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(username));
+            grams(user.lastName).forEach(gram -> lastNameGrams.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(username));
+            users.put(username, user);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(String username) {
+        lock.lock();
+        try {
+            IndexedUser user = users.remove(username);
+            if (user != null) {
+                grams(user.firstName).forEach(gram -> removeFromGram(firstNameGrams, gram, username));
+                grams(user.lastName).forEach(gram -> removeFromGram(lastNameGrams, gram, username));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> find(String firstName, String lastName, Pageable pageable) {
+        String first = firstName == null ? null : normalize(firstName);
+        String last = lastName == null ? null : normalize(lastName);
+
+        // Take candidates from the most selective trigram set, then check real "contains" on each of them
+        Collection<String> candidates = users.keySet();
+        candidates = narrow(candidates, first, firstNameGrams);
+        candidates = narrow(candidates, last, lastNameGrams);
+
+        return candidates.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .filter(user -> first == null || user.firstName.contains(first))
+                .filter(user -> last == null || user.lastName.contains(last))
+                .sorted(ORDER)
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .map(user -> user.username)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int rebuild() {
+        lock.lock();
+        try {
+            users.clear();
+            firstNameGrams.clear();
+            lastNameGrams.clear();
+            int count = 0;
+            Pageable pageable = PageRequest.of(0, REBUILD_BATCH_SIZE, Sort.by("username"));
+            Slice<User> page;
+            do {
+                page = userRepository.findAllBy(pageable);
+                for (User user : page) {
+                    put(user.getUsername(), user.getFirstName(), user.getLastName(), user.getRole());
+                    count++;
+                }
+                pageable = page.nextPageable();
+            } while (page.hasNext());
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Collection<String> narrow(Collection<String> candidates, String part, Map<String, Set<String>> index) {
+        if (part == null || part.length() < GRAM) {
+            return candidates;
+        }
+        Collection<String> smallest = candidates;
+        for (String gram : grams(part).collect(Collectors.toSet())) {
+            Set<String> usernames = index.getOrDefault(gram, Collections.emptySet());
+            if (usernames.size() < smallest.size()) {
+                smallest = usernames;
+            }
+        }
+        return smallest;
+    }
+
+    private static void removeFromGram(Map<String, Set<String>> index, String gram, String username) {
+        Set<String> usernames = index.get(gram);
+        if (usernames != null) {
+            usernames.remove(username);
+            if (usernames.isEmpty()) {
+                index.remove(gram);
+            }
+        }
+    }
+
+    private static Stream<String> grams(String name) {
+        if (name.length() < GRAM) {
+            return Stream.empty();
+        }
+        return Stream.iterate(0, i -> i <= name.length() - GRAM, i -> i + 1)
+                .map(i -> name.substring(i, i + GRAM));
+    }
+
+    // Lower case without accents like MySQL default collation, e.g. "Nguyễn Đức" -> "nguyen duc"
+    static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(name.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return ACCENTS.matcher(decomposed).replaceAll("").replace('đ', 'd');
+    }
+
+    private static class IndexedUser {
+        private final String username;
+        private final String firstName;
+        private final String lastName;
+        private final String role;
+
+        private IndexedUser(String username, String firstName, String lastName, String role) {
+            this.username = username;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.role = role == null ? "" : role;
+        }
+    }
+}
@@ -3,18 +3,22 @@ package fa.training.blog.service.impl;
 import fa.training.blog.dto.UserDTO;
 import fa.training.blog.entity.User;
 import fa.training.blog.exception.MyException;
+import fa.training.blog.mapper.DtoMapper;
 import fa.training.blog.repository.UserRepository;
+import fa.training.blog.security.PrincipalCache;
+import fa.training.blog.service.UserNameIndexService;
 import fa.training.blog.service.UserService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Bean;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.data.domain.Slice;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,12 +26,13 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private UserRepository userRepository;
     @Autowired
-    private ModelMapper modelMapper;
-
-    @Bean
-    public BCryptPasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
-    }
+    private DtoMapper dtoMapper;
+    @Autowired
+    private PrincipalCache principalCache;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private UserNameIndexService userNameIndexService;
 
     @Override
     public UserDTO createUser(UserDTO userDTO) {
@@ -38,10 +43,12 @@ public class UserServiceImpl implements UserService {
         if (userInDatabase != null){
             throw new MyException("405", "Email used");
         }
-        String encodedPassword = passwordEncoder().encode(userDTO.getPassword());
+        String encodedPassword = passwordEncoder.encode(userDTO.getPassword());
         userDTO.setPassword(encodedPassword);
-        User savedUser = userRepository.save(modelMapper.map(userDTO, User.class));
-        return modelMapper.map(savedUser, UserDTO.class);
+        User savedUser = userRepository.save(dtoMapper.toUser(userDTO));
+        userNameIndexService.put(savedUser.getUsername(), savedUser.getFirstName(), savedUser.getLastName(),
+                savedUser.getRole());
+        return dtoMapper.toUserDTO(savedUser);
     }
 
     @Override
@@ -49,6 +56,9 @@ public class UserServiceImpl implements UserService {
         UserDTO userToDelete = findUserByUsername(username);
         if(userToDelete != null){
             userRepository.deleteById(username);
+            // Token of deleted user cannot be used anymore
+            principalCache.evict(username);
+            userNameIndexService.remove(username);
             return userToDelete;
         } else {
             throw new MyException("400", "Username not found");
@@ -66,25 +76,44 @@ public class UserServiceImpl implements UserService {
                     throw new MyException("405", "Email used");
                 }
             }
-            String encodedPassword = passwordEncoder().encode(userDTO.getPassword());
-            userDTO.setPassword(encodedPassword);
-            User editedUser = userRepository.saveAndFlush(modelMapper.map(userDTO, User.class));
-            return modelMapper.map(editedUser, UserDTO.class);
+            // Client may send back the encoded password it got, only encode when password changed
+            if (!userDTO.getPassword().equals(userToEdit.getPassword())) {
+                String encodedPassword = passwordEncoder.encode(userDTO.getPassword());
+                userDTO.setPassword(encodedPassword);
+            }
+            User editedUser = userRepository.saveAndFlush(dtoMapper.toUser(userDTO));
+            // New role or password take effect from next request
+            principalCache.evict(userDTO.getUsername());
+            userNameIndexService.put(editedUser.getUsername(), editedUser.getFirstName(), editedUser.getLastName(),
+                    editedUser.getRole());
+            return dtoMapper.toUserDTO(editedUser);
+        } else {
+            throw new MyException("400", "Username not found");
+        }
+    }
+
+    @Override
+    public void updateEncodedPassword(String username, String encodedPassword) {
+        Optional<User> user = userRepository.findById(username);
+        if (user.isPresent()) {
+            User userToUpdate = user.get();
+            userToUpdate.setPassword(encodedPassword);
+            userRepository.saveAndFlush(userToUpdate);
+            principalCache.evict(username);
         } else {
             throw new MyException("400", "Username not found");
         }
     }
 
     @Override
-    public List<UserDTO> findAllUser(Pageable pageable) {
-        Page<User> users = userRepository.findAll(pageable);
-        return users.stream().map(user -> modelMapper.map(user, UserDTO.class)).collect(Collectors.toList());
+    public Slice<UserDTO> findAllUser(Pageable pageable) {
+        return userRepository.findAllBy(pageable).map(dtoMapper::toUserDTO);
     }
 
     @Override
     public UserDTO findUserByUsername(String username) {
         Optional<User> user = userRepository.findById(username);
-        return user.map(value -> modelMapper.map(value, UserDTO.class)).orElse(null);
+        return user.map(dtoMapper::toUserDTO).orElse(null);
     }
 
     @Override
@@ -93,24 +122,36 @@ public class UserServiceImpl implements UserService {
         if (user == null) {
             return null;
         }
-        return modelMapper.map(user, UserDTO.class);
+        return dtoMapper.toUserDTO(user);
     }
 
+    // Find by name answers from in-memory name index, database is only read to load users found
     @Override
     public List<UserDTO> findUserByFirstName(String firstName, Pageable pageable) {
-        List<User> users = userRepository.findByFirstNameIgnoreCaseContains(firstName, pageable);
-        return users.stream().map(user -> modelMapper.map(user, UserDTO.class)).collect(Collectors.toList());
+        return findUserByUsernames(userNameIndexService.find(firstName, null, pageable));
     }
 
     @Override
     public List<UserDTO> findUserByLastName(String lastName, Pageable pageable) {
-        List<User> users = userRepository.findByLastNameIgnoreCaseContains(lastName, pageable);
-        return users.stream().map(user -> modelMapper.map(user, UserDTO.class)).collect(Collectors.toList());
+        return findUserByUsernames(userNameIndexService.find(null, lastName, pageable));
     }
 
     @Override
     public List<UserDTO> findUserByFirstNameAndLastName(String firstName, String lastName, Pageable pageable) {
-        List<User> users = userRepository.findByFirstNameIgnoreCaseContainsAndLastNameIgnoreCaseContains(firstName, lastName, pageable);
-        return users.stream().map(user -> modelMapper.map(user, UserDTO.class)).collect(Collectors.toList());
+        return findUserByUsernames(userNameIndexService.find(firstName, lastName, pageable));
+    }
+
+    // Load users in one query and keep order of usernames
+    private List<UserDTO> findUserByUsernames(List<String> usernames) {
+        if (usernames.isEmpty()) {
+            return List.of();
+        }
+        Map<String, User> users = userRepository.findAllById(usernames).stream()
+                .collect(Collectors.toMap(User::getUsername, Function.identity()));
+        return usernames.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .map(dtoMapper::toUserDTO)
+                .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,154 @@
+package fa.training.blog.service.impl;
+
+import fa.training.blog.entity.Post;
+import fa.training.blog.service.PostResponseCache;
+import fa.training.blog.service.ViewCountService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+public class ViewCountServiceImpl implements ViewCountService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ViewCountServiceImpl.class);
+    private static final String UPDATE_VIEW = "UPDATE post SET view = view + ? WHERE id = ?";
+
+    // One counter per post. LongAdder is striped so concurrent views of a hot post do not contend.
+    private final Map<String, ViewCounter> counters = new ConcurrentHashMap<>();
+    // One flush at a time. Held while waiting on the database, so a lock and not synchronized: on Java 21 a virtual
+    // thread that blocks inside synchronized stays pinned to its carrier thread, inside a ReentrantLock it unmounts
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private PostResponseCache postResponseCache;
+
+    @Override
+    public void recordView(String postID) {
+        while (true) {
+            ViewCounter counter = counters.computeIfAbsent(postID, id -> new ViewCounter());
+            counter.recorded.increment();
+            if (!counter.retired) {
+                return;
+            }
+            // Counter is being removed by flush, take the view back and count it on the next counter
+            counter.recorded.decrement();
+        }
+    }
+
+    @Override
+    public long getPendingViews(String postID) {
+        ViewCounter counter = counters.get(postID);
+        return counter == null ? 0 : counter.pending();
+    }
+
+    @Override
+    public long getRecordedViews(String postID) {
+        ViewCounter counter = counters.get(postID);
+        return counter == null || counter.retired ? 0 : counter.recorded.sum();
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${blog.view.flush-interval:5000}")
+    public void flush() {
+        lock.lock();
+        try {
+            List<ViewCounter> flushing = new ArrayList<>();
+            List<Long> totals = new ArrayList<>();
+            List<Object[]> batchArgs = new ArrayList<>();
+            for (Map.Entry<String, ViewCounter> entry : counters.entrySet()) {
+                ViewCounter counter = entry.getValue();
+                // Take a snapshot of the total, views counted after this will go to the next flush
+                long total = counter.recorded.sum();
+                long delta = total - counter.flushed;
+                if (delta > 0) {
+                    flushing.add(counter);
+                    totals.add(total);
+                    batchArgs.add(new Object[]{delta, entry.getKey()});
+                } else {
+                    // No view since last flush and all written, so the map does not keep every post ever viewed
+                    removeIdle(entry.getKey(), counter);
+                }
+            }
+            if (batchArgs.isEmpty()) {
+                return;
+            }
+            try {
+                // One transaction: if the batch fails partway no view is written, so none is added twice later
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_VIEW, batchArgs));
+            } catch (DataAccessException | TransactionException e) {
+                // Keep the views in memory and try again on next flush
+                LOGGER.warn("Cannot flush views of {} posts: {}", batchArgs.size(), e.getMessage());
+                return;
+            }
+            for (int i = 0; i < flushing.size(); i++) {
+                flushing.get(i).flushed = totals.get(i);
+            }
+            // Views are written with JDBC behind Hibernate, so drop these posts from second-level cache
+            // or they would be read with old view until they expire
+            Cache cache = entityManagerFactory.getCache();
+            for (Object[] args : batchArgs) {
+                cache.evict(Post.class, args[1]);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void discard(String postID) {
+        counters.remove(postID);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void removeIdle(String postID, ViewCounter counter) {
+        // Retire first then check no view came in: recordView increments then checks "retired", so either it
+        // sees the counter retired and counts again on a new one, or its view is seen here and counter is kept
+        counter.retired = true;
+        if (counter.recorded.sum() != counter.flushed) {
+            counter.retired = false;
+            return;
+        }
+        // Cached response counts views from the total of this counter, next counter starts from 0
+        postResponseCache.rebase(postID, counter.flushed);
+        counters.remove(postID, counter);
+    }
+
+    private static class ViewCounter {
+        // All views counted since counter was created (first view after the previous counter of the post was
+        // removed as idle), never reset
+        private final LongAdder recorded = new LongAdder();
+        // Part of "recorded" already written to database, only changed by flush()
+        private volatile long flushed;
+        // Set by flush while removing the counter, views are not counted on it anymore
+        private volatile boolean retired;
+
+        private long pending() {
+            return recorded.sum() - flushed;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package fa.training.blog.trace;
+
+// SQL statements run by the current request: number of executions and total time in database.
+// Started and ended by SqlTraceFilter, filled by SqlTraceListener on the same thread.
+public class SqlTrace {
+    private static final ThreadLocal<SqlTrace> CURRENT = new ThreadLocal<>();
+
+    private String handler = "none";
+    private int queryCount;
+    private long queryMillis;
+
+    public static SqlTrace start() {
+        SqlTrace trace = new SqlTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * @return trace of current request, null if not in a request (e.g. scheduled tasks)
+     */
+    public static SqlTrace current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public void record(long elapsedMillis) {
+        queryCount++;
+        queryMillis += elapsedMillis;
+    }
+
+    public String getHandler() {
+        return handler;
+    }
+
+    public void setHandler(String handler) {
+        this.handler = handler;
+    }
+
+    public int getQueryCount() {
+        return queryCount;
+    }
+
+    public long getQueryMillis() {
+        return queryMillis;
+    }
+}
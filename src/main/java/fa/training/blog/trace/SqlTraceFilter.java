@@ -0,0 +1,42 @@
+package fa.training.blog.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// First filter, so queries of security filters (loading user of token) are also counted
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SqlTraceFilter extends OncePerRequestFilter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqlTraceFilter.class);
+
+    @Value("${blog.sql-trace.log-requests:false}")
+    private boolean logRequests;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlTrace trace = SqlTrace.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlTrace.end();
+            if (logRequests) {
+                // One line per request, key=value so log tools can parse it
+                LOGGER.info("sql_trace method={} uri={} handler={} status={} queries={} query_ms={}",
+                        request.getMethod(), request.getRequestURI(), trace.getHandler(), response.getStatus(),
+                        trace.getQueryCount(), trace.getQueryMillis());
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package fa.training.blog.trace;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Called by the proxy of DataSource after each statement (a JDBC batch counts once)
+public class SqlTraceListener implements QueryExecutionListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqlTraceListener.class);
+
+    private final long slowQueryMillis;
+
+    public SqlTraceListener(Duration slowQueryThreshold) {
+        this.slowQueryMillis = slowQueryThreshold.toMillis();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo executionInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo executionInfo, List<QueryInfo> queryInfoList) {
+        long elapsedMillis = executionInfo.getElapsedTime();
+        SqlTrace trace = SqlTrace.current();
+        if (trace != null) {
+            trace.record(elapsedMillis);
+        }
+        if (elapsedMillis >= slowQueryMillis) {
+            String sql = queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+            LOGGER.warn("Slow query: {} ms in {}: {}", elapsedMillis, trace == null ? "none" : trace.getHandler(), sql);
+        }
+    }
+}
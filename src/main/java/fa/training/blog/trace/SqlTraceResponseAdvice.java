@@ -0,0 +1,38 @@
+package fa.training.blog.trace;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// Headers must be set before the body is written, so queries run while writing the body
+// (lazy loading during serialization) are only in the log line, not in the headers
+@ControllerAdvice
+public class SqlTraceResponseAdvice implements ResponseBodyAdvice<Object> {
+    public static final String QUERY_COUNT_HEADER = "X-Query-Count";
+    public static final String QUERY_TIME_HEADER = "X-Query-Time-Ms";
+
+    @Value("${blog.sql-trace.response-header:false}")
+    private boolean responseHeader;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return responseHeader;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        SqlTrace trace = SqlTrace.current();
+        if (trace != null) {
+            response.getHeaders().set(QUERY_COUNT_HEADER, String.valueOf(trace.getQueryCount()));
+            response.getHeaders().set(QUERY_TIME_HEADER, String.valueOf(trace.getQueryMillis()));
+        }
+        return body;
+    }
+}
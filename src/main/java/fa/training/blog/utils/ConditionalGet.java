@@ -0,0 +1,73 @@
+package fa.training.blog.utils;
+
+import fa.training.blog.model.MappedPage;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+public class ConditionalGet {
+    private ConditionalGet() {
+    }
+
+    /**
+     * Check if client sent the version it has (If-None-Match or If-Modified-Since). Only then version of one post or
+     * comment is read before the item itself, else it is taken from the item loaded.
+     * @param request current request
+     * @return true if request is conditional
+     */
+    public static boolean hasValidator(WebRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    /**
+     * Set ETag and Last-Modified of one post or comment and check them against If-None-Match and If-Modified-Since.
+     * ETag is built from id and modify date. It is weak: view of post is in the response but not in ETag (it would
+     * change at every read), a 304 lets client keep the view it already has.
+     * @param request current request, response status is set to 304 if not modified
+     * @param id of post or comment
+     * @param modifyDate of post or comment
+     * @return true if client already has this version, handler then returns null
+     */
+    public static boolean checkNotModified(WebRequest request, String id, LocalDateTime modifyDate) {
+        long lastModified = toMillis(modifyDate);
+        return request.checkNotModified(weak(id + "-" + Long.toHexString(lastModified)), lastModified);
+    }
+
+    /**
+     * Same as above for a page of posts or comments, checked before the page is mapped to DTO. Last-Modified is the
+     * newest modify date in the page, ETag is a hash of ids and modify dates so it also changes when an item is added
+     * to or removed from the page (and of hasNext, which changes when the next page empties).
+     * @param request current request, response status is set to 304 if not modified
+     * @param page posts or comments in the page
+     * @return true if client already has this version, handler then returns null
+     */
+    public static boolean checkNotModified(WebRequest request, MappedPage<?> page) {
+        List<String> ids = page.getIds();
+        List<LocalDateTime> modifyDates = page.getModifyDates();
+        StringBuilder version = new StringBuilder();
+        long newest = -1;
+        for (int i = 0; i < ids.size(); i++) {
+            long lastModified = toMillis(modifyDates.get(i));
+            newest = Math.max(newest, lastModified);
+            version.append(ids.get(i)).append('-').append(lastModified).append(',');
+        }
+        version.append(page.getHasNext());
+        String etag = DigestUtils.md5DigestAsHex(version.toString().getBytes(StandardCharsets.UTF_8));
+        return request.checkNotModified(weak(etag), newest);
+    }
+
+    private static String weak(String etag) {
+        return "W/\"" + etag + "\"";
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        // -1 means unknown, Last-Modified is then not used
+        return dateTime == null ? -1 : dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,63 @@
+package fa.training.blog.utils;
+
+import fa.training.blog.exception.MyException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+public class FeedCursor {
+    // Cursor of the first page: every post or comment is created before it
+    public static final FeedCursor FIRST = new FeedCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), "");
+
+    private static final String SEPARATOR = "|";
+
+    // Position of the last item returned, next page starts right after it in order (createDate desc, id desc)
+    private final LocalDateTime createDate;
+    private final String id;
+
+    public FeedCursor(LocalDateTime createDate, String id) {
+        this.createDate = createDate;
+        this.id = id;
+    }
+
+    public LocalDateTime getCreateDate() {
+        return createDate;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Encode cursor to an opaque string to send to client
+     * @return URL safe string
+     */
+    public String encode() {
+        String value = createDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode cursor sent by client
+     * @param cursor string got from "nextCursor" of previous page, empty string for the first page
+     * @return decoded cursor
+     * @throws MyException if cursor is invalid
+     */
+    public static FeedCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return FIRST;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new MyException("406", "Invalid cursor");
+            }
+            return new FeedCursor(LocalDateTime.parse(value.substring(0, separator)), value.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new MyException("406", "Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package fa.training.blog.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class FieldSelector {
+    // Fields a post summary has (see PostSummary), when client asks for more the full post is loaded
+    public static final Set<String> POST_SUMMARY_FIELDS = new HashSet<>(Arrays.asList(
+            "id", "title", "createDate", "modifyDate", "view", "owner"));
+    // Comment summary has every field of comment shown in JSON (see CommentSummary)
+    public static final Set<String> COMMENT_SUMMARY_FIELDS = new HashSet<>(Arrays.asList(
+            "id", "content", "createDate", "modifyDate", "deleted", "owner", "post"));
+
+    /**
+     * Parse "fields" request parameter
+     * @param fields comma separated field names, e.g. "id,title,owner"
+     * @return set of field names or null if fields is not given (means all fields)
+     */
+    public static Set<String> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        return Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Check if all selected fields can be answered from a summary projection
+     * @param fields selected fields, null means all fields
+     * @param summaryFields fields the summary has
+     * @return true if the summary is enough
+     */
+    public static boolean isSummary(Set<String> fields, Set<String> summaryFields) {
+        return fields != null && summaryFields.containsAll(fields);
+    }
+
+    /**
+     * Keep only selected fields of each item, as they would be written to JSON
+     * @param objectMapper to convert items to JSON maps (so @JsonIgnoreProperties... still apply)
+     * @param items DTOs to trim
+     * @param fields selected fields, null means all fields
+     * @return items as they are if fields is null, else list of maps with just selected fields
+     */
+    public static List<?> select(ObjectMapper objectMapper, List<?> items, Set<String> fields) {
+        if (fields == null) {
+            return items;
+        }
+        List<Map<String, Object>> selected = new ArrayList<>(items.size());
+        for (Object item : items) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> map = objectMapper.convertValue(item, Map.class);
+            map.keySet().retainAll(fields);
+            selected.add(map);
+        }
+        return selected;
+    }
+}
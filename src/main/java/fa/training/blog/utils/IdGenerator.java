@@ -0,0 +1,9 @@
+package fa.training.blog.utils;
+
+public interface IdGenerator {
+    /**
+     * Generate a new unique ID for a post or comment
+     * @return new ID
+     */
+    String nextId();
+}
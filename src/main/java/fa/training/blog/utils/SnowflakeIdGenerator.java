@@ -0,0 +1,69 @@
+package fa.training.blog.utils;
+
+import java.time.Clock;
+import java.time.Instant;
+
+public class SnowflakeIdGenerator implements IdGenerator {
+    // 64-bit ID: 41 bits of milliseconds since EPOCH (enough until 2091), 10 bits of worker, 12 bits of sequence
+    public static final long EPOCH = Instant.parse("2022-01-01T00:00:00Z").toEpochMilli();
+    public static final int MAX_WORKER_ID = (1 << 10) - 2;
+    // Last worker ID is kept for IDs of rows migrated from UUID, so they never collide with a running generator
+    public static final int MIGRATED_WORKER_ID = MAX_WORKER_ID + 1;
+    public static final int LENGTH = 13;
+    private static final int WORKER_SHIFT = 12;
+    private static final int TIMESTAMP_SHIFT = 22;
+    private static final int SEQUENCE_MASK = (1 << 12) - 1;
+    // Crockford base32, in ASCII order so IDs sort as strings the same as in time
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final int workerId;
+    private final Clock clock;
+    private long lastTimestamp = -1;
+    private int sequence;
+
+    public SnowflakeIdGenerator(int workerId, Clock clock) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("Worker ID must be between 0 and " + MAX_WORKER_ID);
+        }
+        this.workerId = workerId;
+        this.clock = clock;
+    }
+
+    // synchronized is kept with virtual threads: nothing inside waits, so a carrier thread is held for nanoseconds
+    @Override
+    public synchronized String nextId() {
+        // If clock goes back, keep counting from the last timestamp so IDs never go back
+        long timestamp = Math.max(clock.millis(), lastTimestamp);
+        if (timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                // 4096 IDs in this millisecond already, borrow the next one instead of waiting for it
+                timestamp++;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastTimestamp = timestamp;
+        return compose(timestamp, workerId, sequence);
+    }
+
+    /**
+     * Build ID of a given time, worker and sequence
+     * @param timestamp milliseconds since 1970 (not before EPOCH)
+     * @param workerId between 0 and MIGRATED_WORKER_ID
+     * @param sequence number of ID in this millisecond, only the 12 low bits are used
+     * @return ID of 13 characters
+     */
+    public static String compose(long timestamp, int workerId, int sequence) {
+        long id = ((timestamp - EPOCH) << TIMESTAMP_SHIFT)
+                | ((long) workerId << WORKER_SHIFT)
+                | (sequence & SEQUENCE_MASK);
+        // Fixed length (no leading zeros removed), so string order is the same as number order
+        char[] chars = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,11 @@
+package fa.training.blog.utils;
+
+import java.util.UUID;
+
+public class UuidIdGenerator implements IdGenerator {
+    // Random UUID (36 characters), the ID used before SnowflakeIdGenerator
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,40 @@
+package fa.training.blog.configuration;
+
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Only compiled with profile "virtual-threads" (Java 21). Tomcat runs each request on a new virtual thread instead
+// of its pool of platform threads (server.tomcat.threads.max is not used), so a request waiting on the database
+// does not hold a thread. Number of open connections is still limited by server.tomcat.max-connections.
+// blog.virtual-threads.enabled=false goes back to platform threads with the same build (to compare them).
+@Configuration
+@ConditionalOnProperty(name = "blog.virtual-threads.enabled", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadConfig {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    private final ExecutorService requestExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("request-", 0).factory());
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            protocolHandler.setExecutor(requestExecutor);
+            LOGGER.info("Requests run on virtual threads");
+        };
+    }
+
+    // Tomcat only shuts down its own executor
+    @PreDestroy
+    public void shutdown() {
+        requestExecutor.shutdown();
+    }
+}
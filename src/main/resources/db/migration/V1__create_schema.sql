@@ -0,0 +1,38 @@
+-- Schema as Hibernate created it (ddl-auto=update) before migrations were used.
+-- Existing databases are baselined at this version, so only later versions run on them.
+
+CREATE TABLE user (
+    username VARCHAR(50) NOT NULL,
+    password VARCHAR(254) NOT NULL,
+    email VARCHAR(255),
+    first_name VARCHAR(255) NOT NULL,
+    last_name VARCHAR(255) NOT NULL,
+    role VARCHAR(255) NOT NULL,
+    PRIMARY KEY (username)
+);
+
+CREATE TABLE post (
+    id VARCHAR(255) NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    content VARCHAR(255) NOT NULL,
+    create_date DATETIME(6),
+    modify_date DATETIME(6),
+    view INT NOT NULL,
+    owner_username VARCHAR(50),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_post_owner FOREIGN KEY (owner_username) REFERENCES user (username)
+);
+
+CREATE TABLE comment (
+    id VARCHAR(255) NOT NULL,
+    content VARCHAR(255) NOT NULL,
+    create_date DATETIME(6),
+    modify_date DATETIME(6),
+    deleted BOOLEAN NOT NULL,
+    owner_username VARCHAR(50),
+    post_id VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_comment_owner FOREIGN KEY (owner_username) REFERENCES user (username),
+    CONSTRAINT fk_comment_post FOREIGN KEY (post_id) REFERENCES post (id)
+);
+
@@ -0,0 +1,20 @@
+-- Indexes for repository finders not covered by feed indexes (V3): columns compared with "=" first, then range or
+-- sort columns.
+-- Comments are listed by post then create date (see CommentController), so that is the sort part of their indexes.
+-- PostRepository.findByCreateDateBetween and findByOwner use feed indexes of V3.
+
+-- UserRepository.findByEmail, email is unique (sign up already refuses a duplicate email)
+CREATE UNIQUE INDEX uk_user_email ON user (email);
+-- UserRepository.findAllBy, users are listed by role then username
+CREATE INDEX idx_user_role_username ON user (role, username);
+
+-- CommentRepository.findByPostAndDeleted, findSummaryByPostAndDeletedIn, findSummaryFeedByPost
+CREATE INDEX idx_comment_post_deleted_create_date ON comment (post_id, deleted, create_date);
+-- CommentRepository.findByOwnerAndDeleted, findSummaryByOwnerAndDeletedIn
+CREATE INDEX idx_comment_owner_deleted_post_create_date ON comment (owner_username, deleted, post_id, create_date);
+-- CommentRepository.findByOwner
+CREATE INDEX idx_comment_owner_post_create_date ON comment (owner_username, post_id, create_date);
+-- CommentRepository.findByDeleted, findSummaryByDeletedIn, countByDeleted
+CREATE INDEX idx_comment_deleted_post_create_date ON comment (deleted, post_id, create_date);
+-- CommentRepository.findByDeletedAndCreateDateBetween, findSummaryByCreateDateBetweenAndDeletedIn, findSummaryFeed
+CREATE INDEX idx_comment_deleted_create_date_id ON comment (deleted, create_date, id);
@@ -0,0 +1,67 @@
+package fa.training.blog;
+
+import fa.training.blog.entity.User;
+import fa.training.blog.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Whole application on in-memory H2 with second-level cache as configured (regions of application.conf),
+// so a region Caffeine cannot find stops this test and not only the server
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cache;MODE=MySQL;NON_KEYWORDS=USER",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "blog.search.index-dir=target/cache-test/post-index"
+})
+public class SecondLevelCacheTest {
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("Entity regions are created from application.conf")
+    @Order(1)
+    void entityRegionsCreated() {
+        // When
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Then
+        assertTrue(statistics.isStatisticsEnabled());
+        for (String region : new String[]{"user", "post", "comment"}) {
+            assertTrue(List.of(statistics.getSecondLevelCacheRegionNames()).contains(region), region);
+        }
+    }
+
+    @Test
+    @DisplayName("User read twice is read from cache the second time")
+    @Order(2)
+    void userReadFromCache() {
+        // Given
+        userRepository.save(new User("cached", "password", "cached@mail.com", "First", "Last", "ROLE_USER"));
+        entityManagerFactory.getCache().evictAll();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When
+        userRepository.findById("cached");
+        userRepository.findById("cached");
+
+        // Then
+        CacheRegionStatistics region = statistics.getDomainDataRegionStatistics("user");
+        assertEquals(1, region.getMissCount());
+        assertEquals(1, region.getHitCount());
+    }
+}
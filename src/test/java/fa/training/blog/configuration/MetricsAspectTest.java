@@ -0,0 +1,77 @@
+package fa.training.blog.configuration;
+
+import fa.training.blog.exception.MyException;
+import fa.training.blog.service.impl.CountServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+public class MetricsAspectTest {
+    private MetricsAspect metricsAspect;
+    private MeterRegistry meterRegistry;
+    @Mock
+    private ProceedingJoinPoint joinPoint;
+    @Mock
+    private Signature signature;
+
+    @BeforeEach
+    public void init() {
+        metricsAspect = new MetricsAspect();
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(metricsAspect, "meterRegistry", meterRegistry);
+        given(joinPoint.getSignature()).willReturn(signature);
+        given(signature.getDeclaringType()).willReturn(CountServiceImpl.class);
+        given(signature.getName()).willReturn("countPost");
+    }
+
+    @Test
+    @DisplayName("Time service method")
+    @Order(1)
+    void timeService() throws Throwable {
+        // Given
+        given(joinPoint.proceed()).willReturn(12L);
+
+        // when
+        Object actual = metricsAspect.timeService(joinPoint);
+
+        // then
+        assertEquals(12L, actual);
+        Timer timer = meterRegistry.find(MetricsAspect.METRIC_NAME)
+                .tags("layer", "service", "class", "CountServiceImpl", "method", "countPost", "exception", "none")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    @DisplayName("Time service method throwing exception")
+    @Order(2)
+    void timeServiceException() throws Throwable {
+        // Given
+        given(joinPoint.proceed()).willThrow(new MyException("400", "Post not found"));
+
+        // when
+        assertThrows(MyException.class, () -> metricsAspect.timeService(joinPoint));
+
+        // then
+        Timer timer = meterRegistry.find(MetricsAspect.METRIC_NAME).tags("exception", "MyException").timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+}
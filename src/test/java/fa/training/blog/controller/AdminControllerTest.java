@@ -0,0 +1,131 @@
+package fa.training.blog.controller;
+
+import fa.training.blog.model.ResponseObject;
+import fa.training.blog.security.JwtTokenUtil;
+import fa.training.blog.security.JwtUserDetailsService;
+import fa.training.blog.service.CacheStatisticsService;
+import fa.training.blog.service.ExportService;
+import fa.training.blog.service.IdMigrationService;
+import fa.training.blog.service.UserImportService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(value = AdminController.class)
+@WithMockUser(roles = "ADMIN")
+public class AdminControllerTest {
+    @Autowired
+    private MockMvc mvc;
+    @MockBean
+    private CacheStatisticsService cacheStatisticsService;
+    @MockBean
+    private IdMigrationService idMigrationService;
+    @MockBean
+    private UserImportService userImportService;
+    @MockBean
+    private ExportService exportService;
+    @MockBean
+    private JwtUserDetailsService jwtUserDetailsService;
+    @MockBean
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Test
+    @DisplayName("Get cache statistics")
+    @Order(1)
+    public void getCacheStatistics() throws Exception {
+        // Given
+        given(cacheStatisticsService.getStatistics()).willReturn(Map.of(
+                "post", Map.of("hit", 3L, "miss", 1L, "put", 1L)));
+
+        // When, Then
+        mvc.perform(get("/admin/cache"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.post.hit").value(3));
+    }
+
+    @Test
+    @DisplayName("Migrate legacy IDs")
+    @Order(2)
+    public void migrateLegacyIds() throws Exception {
+        // Given
+        given(idMigrationService.migrateLegacyIds()).willReturn(12);
+
+        // When, Then
+        mvc.perform(post("/admin/migrate-ids").with(csrf()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data").value(12));
+    }
+
+    @Test
+    @DisplayName("Import users and stream rejects and counts")
+    @Order(3)
+    public void importUsers() throws Exception {
+        // Given
+        given(userImportService.importUsers(any(), eq(true), any())).willAnswer(invocation -> {
+            Consumer<ResponseObject> listener = invocation.getArgument(2);
+            listener.accept(new ResponseObject("405", "Line 3: Username existed"));
+            return Map.of("read", 2, "imported", 1, "rejected", 1);
+        });
+        String csv = "username,password,email,firstName,lastName,role\n"
+                + "user,password,user@mail.com,First,Last,ROLE_USER\n"
+                + "user,password,other@mail.com,First,Last,ROLE_USER\n";
+
+        // When
+        String body = mvc.perform(post("/admin/users/import").with(csrf())
+                        .contentType("text/csv")
+                        .content(csv))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        // Then
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("Line 3: Username existed"));
+        assertTrue(lines[1].contains("\"imported\":1"));
+    }
+
+    @Test
+    @DisplayName("Export comments of an owner")
+    @Order(4)
+    public void exportComments() throws Exception {
+        // Given
+        given(exportService.exportComments(eq("user"), isNull(), eq(false), any())).willAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(3);
+            output.write("{\"id\":\"comment-1\"}\n{\"id\":\"comment-2\"}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        });
+
+        // When, Then
+        mvc.perform(get("/admin/export/comments").param("owner", "user"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":\"comment-1\"}\n{\"id\":\"comment-2\"}\n"));
+    }
+}
@@ -4,9 +4,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import fa.training.blog.dto.CommentDTO;
 import fa.training.blog.dto.PostDTO;
 import fa.training.blog.dto.UserDTO;
+import fa.training.blog.model.MappedPage;
+import fa.training.blog.model.ResponseObject;
 import fa.training.blog.security.JwtTokenUtil;
 import fa.training.blog.security.JwtUserDetailsService;
 import fa.training.blog.service.CommentService;
+import fa.training.blog.service.CountService;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Order;
@@ -20,13 +23,21 @@ import org.springframework.security.test.context.support.WithAnonymousUser;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -44,6 +55,8 @@ public class CommentControllerTest {
     @MockBean
     private CommentService commentService;
     @MockBean
+    private CountService countService;
+    @MockBean
     private JwtUserDetailsService jwtUserDetailsService;
     @MockBean
     private JwtTokenUtil jwtTokenUtil;
@@ -111,7 +124,7 @@ public class CommentControllerTest {
     @Order(3)
     void findByOwnerAnonymous() throws Exception {
         String username = user.getUsername();
-        given(commentService.findCommentByOwnerAndDeleted(eq(username), any())).willReturn(comments);
+        given(commentService.findCommentByOwnerAndDeleted(eq(username), any())).willReturn(page(comments));
 
         mvc.perform(get("/comment").param("owner", username))
                 .andDo(print())
@@ -127,7 +140,7 @@ public class CommentControllerTest {
     @Order(4)
     void findByPostAnonymous() throws Exception {
         String postID = post.getId();
-        given(commentService.findCommentByPostAndDeleted(eq(postID), any())).willReturn(comments);
+        given(commentService.findCommentByPostAndDeleted(eq(postID), any())).willReturn(page(comments));
 
         mvc.perform(get("/comment").param("post", postID))
                 .andDo(print())
@@ -142,7 +155,7 @@ public class CommentControllerTest {
     @DisplayName("Find by create date anonymous")
     @Order(5)
     void findByCreateDateAnonymous() throws Exception {
-        given(commentService.findCommentByCreateDateAndDeleted(any(), any())).willReturn(comments);
+        given(commentService.findCommentByCreateDateAndDeleted(any(), any())).willReturn(page(comments));
 
         mvc.perform(get("/comment").param("createDate", "2020-02-02"))
                 .andDo(print())
@@ -157,7 +170,7 @@ public class CommentControllerTest {
     @DisplayName("Find all comment anonymous")
     @Order(6)
     void findAllCommentAnonymous() throws Exception {
-        given(commentService.findCommentByDeleted(any())).willReturn(comments);
+        given(commentService.findCommentByDeleted(any())).willReturn(page(comments));
 
         mvc.perform(get("/comment"))
                 .andDo(print())
@@ -187,7 +200,7 @@ public class CommentControllerTest {
     @Order(8)
     void findByOwnerUser() throws Exception {
         String username = user.getUsername();
-        given(commentService.findCommentByOwnerAndDeleted(eq(username), any())).willReturn(comments);
+        given(commentService.findCommentByOwnerAndDeleted(eq(username), any())).willReturn(page(comments));
 
         mvc.perform(get("/comment").param("owner", username))
                 .andDo(print())
@@ -202,7 +215,7 @@ public class CommentControllerTest {
     @Order(9)
     void findByPostUser() throws Exception {
         String postID = post.getId();
-        given(commentService.findCommentByPostAndDeleted(eq(postID), any())).willReturn(comments);
+        given(commentService.findCommentByPostAndDeleted(eq(postID), any())).willReturn(page(comments));
 
         mvc.perform(get("/comment").param("post", postID))
                 .andDo(print())
@@ -216,7 +229,7 @@ public class CommentControllerTest {
     @DisplayName("Find by create date user")
     @Order(10)
     void findByCreateDateUser() throws Exception {
-        given(commentService.findCommentByCreateDateAndDeleted(any(), any())).willReturn(comments);
+        given(commentService.findCommentByCreateDateAndDeleted(any(), any())).willReturn(page(comments));
 
         mvc.perform(get("/comment").param("createDate", "2020-02-02"))
                 .andDo(print())
@@ -230,7 +243,7 @@ public class CommentControllerTest {
     @DisplayName("Find all comment user")
     @Order(11)
     void findAllCommentUser() throws Exception {
-        given(commentService.findCommentByDeleted(any())).willReturn(comments);
+        given(commentService.findCommentByDeleted(any())).willReturn(page(comments));
 
         mvc.perform(get("/comment"))
                 .andDo(print())
@@ -262,7 +275,7 @@ public class CommentControllerTest {
     @Order(13)
     void findByOwnerAdmin() throws Exception {
         String username = user.getUsername();
-        given(commentService.findCommentByOwner(eq(username), any())).willReturn(comments);
+        given(commentService.findCommentByOwner(eq(username), any())).willReturn(page(comments));
 
         mvc.perform(get("/comment").param("owner", username))
                 .andDo(print())
@@ -278,7 +291,7 @@ public class CommentControllerTest {
     @Order(14)
     void findByPostAdmin() throws Exception {
         String postID = post.getId();
-        given(commentService.findCommentByPost(eq(postID), any())).willReturn(comments);
+        given(commentService.findCommentByPost(eq(postID), any())).willReturn(page(comments));
 
         mvc.perform(get("/comment").param("post", postID))
                 .andDo(print())
@@ -293,7 +306,7 @@ public class CommentControllerTest {
     @DisplayName("Find by create date admin")
     @Order(15)
     void findByCreateDateAdmin() throws Exception {
-        given(commentService.findCommentByCreateDate(any(), any())).willReturn(comments);
+        given(commentService.findCommentByCreateDate(any(), any())).willReturn(page(comments));
 
         mvc.perform(get("/comment").param("createDate", "2020-02-02"))
                 .andDo(print())
@@ -321,14 +334,17 @@ public class CommentControllerTest {
     @DisplayName("Find all comment admin")
     @Order(17)
     void findAllCommentAdmin() throws Exception {
-        given(commentService.findAllComment(any())).willReturn(comments);
+        MappedPage<CommentDTO> page = page(comments);
+        page.setHasNext(true);
+        given(commentService.findAllComment(any())).willReturn(page);
 
         mvc.perform(get("/comment"))
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(content().contentType("application/json"))
                 .andExpect(jsonPath("$.data[0].id").value("Comment ID"))
-                .andExpect(jsonPath("$.data[0].content").value("Content of comment"));
+                .andExpect(jsonPath("$.data[0].content").value("Content of comment"))
+                .andExpect(jsonPath("$.hasNext").value(true));
     }
 
     @Test
@@ -422,4 +438,170 @@ public class CommentControllerTest {
                 .andExpect(jsonPath("$.data.id").value("Comment ID"))
                 .andExpect(jsonPath("$.data.content").value("Content of comment"));
     }
+
+    @Test
+    @WithAnonymousUser
+    @DisplayName("Anonymous find comment by post with fields")
+    @Order(23)
+    void anonymousFindCommentSummaryByPost() throws Exception {
+        String postID = post.getId();
+        given(commentService.findCommentSummaryByPost(eq(postID), eq(false), any())).willReturn(page(comments));
+
+        mvc.perform(get("/comment").param("post", postID).param("fields", "id,content"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.data[0].id").value("Comment ID"))
+                .andExpect(jsonPath("$.data[0].content").value("Content of comment"))
+                .andExpect(jsonPath("$.data[0].post").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(roles = {"ADMIN"})
+    @DisplayName("Admin find all comment with fields")
+    @Order(24)
+    void adminFindAllCommentSummary() throws Exception {
+        CommentDTO summary = new CommentDTO();
+        summary.setId(comment.getId());
+        summary.setContent(comment.getContent());
+        summary.setPost(post);
+        given(commentService.findAllCommentSummary(eq(true), any())).willReturn(page(List.of(summary)));
+
+        mvc.perform(get("/comment").param("fields", "id,post"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.data[0].id").value("Comment ID"))
+                .andExpect(jsonPath("$.data[0].post.id").value(post.getId()))
+                .andExpect(jsonPath("$.data[0].content").doesNotExist());
+    }
+
+    @Test
+    @WithAnonymousUser
+    @DisplayName("Anonymous find comment feed by post")
+    @Order(25)
+    void anonymousFindCommentFeedByPost() throws Exception {
+        String postID = post.getId();
+        given(commentService.findCommentFeedByPost(eq(postID), eq("abc"), eq(false), eq(10)))
+                .willReturn(page(comments));
+
+        mvc.perform(get("/comment").param("post", postID).param("cursor", "abc"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.data[0].id").value("Comment ID"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @WithAnonymousUser
+    @DisplayName("Anonymous count comment")
+    @Order(26)
+    void anonymousCountComment() throws Exception {
+        given(countService.countComment(false)).willReturn(42L);
+
+        mvc.perform(get("/comment/count"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.data").value(42));
+    }
+
+    @Test
+    @DisplayName("Find comment by post not modified")
+    @Order(27)
+    void findCommentByPostNotModified() throws Exception {
+        CommentDTO modified = new CommentDTO();
+        modified.setId(comment.getId());
+        modified.setModifyDate(LocalDateTime.of(2022, 8, 1, 10, 0));
+        String postID = post.getId();
+        given(commentService.findCommentByPostAndDeleted(eq(postID), any())).willReturn(page(List.of(modified)));
+        String etag = mvc.perform(get("/comment").param("post", postID))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/comment").param("post", postID).header("If-None-Match", etag))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("Find comment by ID not modified does not load comment")
+    @Order(28)
+    void findCommentByIdNotModified() throws Exception {
+        String id = comment.getId();
+        given(commentService.findCommentModifyDate(id, false)).willReturn(LocalDateTime.of(2022, 8, 1, 10, 0));
+
+        mvc.perform(get("/comment").param("id", id)
+                        .header("If-Modified-Since", "Mon, 01 Aug 2022 23:00:00 GMT"))
+                .andDo(print())
+                .andExpect(status().isNotModified());
+        verify(commentService, never()).findCommentByIDAndDeleted(id);
+    }
+
+    @Test
+    @DisplayName("Find comment by ID without validator does not read modify date")
+    @Order(29)
+    void findCommentByIdWithoutValidator() throws Exception {
+        CommentDTO modified = new CommentDTO();
+        modified.setId(comment.getId());
+        modified.setModifyDate(LocalDateTime.of(2022, 8, 1, 10, 0));
+        String id = comment.getId();
+        given(commentService.findCommentByIDAndDeleted(id)).willReturn(modified);
+
+        mvc.perform(get("/comment").param("id", id))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().string("ETag", startsWith("W/")));
+        verify(commentService, never()).findCommentModifyDate(any(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Find comment by post not modified is not mapped")
+    @Order(30)
+    void findCommentByPostNotModifiedNotMapped() throws Exception {
+        AtomicInteger mapped = new AtomicInteger();
+        String postID = post.getId();
+        given(commentService.findCommentByPostAndDeleted(eq(postID), any())).willAnswer(invocation ->
+                MappedPage.of(comments, CommentDTO::getId, CommentDTO::getModifyDate, comment -> {
+                    mapped.incrementAndGet();
+                    return comment;
+                }));
+        String etag = mvc.perform(get("/comment").param("post", postID))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/comment").param("post", postID).header("If-None-Match", etag))
+                .andDo(print())
+                .andExpect(status().isNotModified());
+        assertEquals(comments.size(), mapped.get());
+    }
+
+    @Test
+    @DisplayName("Create comments in batch")
+    @Order(31)
+    void createCommentsBatch() throws Exception {
+        String username = user.getUsername();
+        given(commentService.createComments(any(), eq(username)))
+                .willReturn(List.of(new ResponseObject(comment), new ResponseObject("400", "Post not found")));
+
+        mvc.perform(post("/comment/batch")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(comment, comment))))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.code").value("200"))
+                .andExpect(jsonPath("$.data[0].code").value("200"))
+                .andExpect(jsonPath("$.data[0].data.id").value("Comment ID"))
+                .andExpect(jsonPath("$.data[1].code").value("400"));
+    }
+
+    // Page as returned by service, comments are already DTO in these tests
+    private static MappedPage<CommentDTO> page(List<CommentDTO> comments) {
+        return MappedPage.of(comments, CommentDTO::getId, CommentDTO::getModifyDate, Function.identity());
+    }
 }
@@ -3,8 +3,11 @@ package fa.training.blog.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import fa.training.blog.dto.PostDTO;
 import fa.training.blog.dto.UserDTO;
+import fa.training.blog.model.MappedPage;
+import fa.training.blog.model.ResponseObject;
 import fa.training.blog.security.JwtTokenUtil;
 import fa.training.blog.security.JwtUserDetailsService;
+import fa.training.blog.service.CountService;
 import fa.training.blog.service.PostService;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
@@ -17,13 +20,20 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -40,6 +50,8 @@ public class PostControllerTest {
     @MockBean
     private PostService postService;
     @MockBean
+    private CountService countService;
+    @MockBean
     private JwtUserDetailsService jwtUserDetailsService;
     @MockBean
     private JwtTokenUtil jwtTokenUtil;
@@ -69,7 +81,8 @@ public class PostControllerTest {
     @Order(1)
     void findPostByIdSuccess() throws Exception {
         String id = post.getId();
-        given(postService.findPostByID(id)).willReturn(post);
+        given(postService.findPostResponseByID(id))
+                .willReturn(objectMapper.writeValueAsBytes(new ResponseObject(post)));
 
         mvc.perform(get("/post").param("id", id))
                 .andDo(print())
@@ -84,7 +97,7 @@ public class PostControllerTest {
     @Order(2)
     void findPostByIdNotFound() throws Exception {
         String id = post.getId();
-        given(postService.findPostByID(id)).willReturn(null);
+        given(postService.findPostResponseByID(id)).willReturn(null);
 
         mvc.perform(get("/post").param("id", id))
                 .andDo(print())
@@ -99,7 +112,7 @@ public class PostControllerTest {
     @Order(3)
     void findPostByOwner() throws Exception {
         String id = post.getId();
-        given(postService.findPostByOwner(any(), any())).willReturn(posts);
+        given(postService.findPostByOwner(any(), any())).willReturn(page(posts));
 
         mvc.perform(get("/post").param("owner", user.getUsername()))
                 .andDo(print())
@@ -113,7 +126,7 @@ public class PostControllerTest {
     @DisplayName("Find post by create date")
     @Order(4)
     void findPostByCreateDate() throws Exception {
-        given(postService.findPostByCreateDate(any(), any())).willReturn(posts);
+        given(postService.findPostByCreateDate(any(), any())).willReturn(page(posts));
 
         mvc.perform(get("/post").param("createDate", "2020-02-02"))
                 .andDo(print())
@@ -140,7 +153,7 @@ public class PostControllerTest {
     @Order(6)
     void findPostByTitle() throws Exception {
         String title = post.getTitle();
-        given(postService.findPostByTitle(eq(title), any())).willReturn(posts);
+        given(postService.findPostByTitle(eq(title), any())).willReturn(page(posts));
 
         mvc.perform(get("/post").param("title", title))
                 .andDo(print())
@@ -154,14 +167,17 @@ public class PostControllerTest {
     @DisplayName("Find all post")
     @Order(7)
     void findAllPost() throws Exception {
-        given(postService.findAllPost(any())).willReturn(posts);
+        MappedPage<PostDTO> page = page(posts);
+        page.setHasNext(true);
+        given(postService.findAllPost(any())).willReturn(page);
 
         mvc.perform(get("/post"))
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(content().contentType("application/json"))
                 .andExpect(jsonPath("$.data[0].id").value(post.getId()))
-                .andExpect(jsonPath("$.data[0].title").value(post.getTitle()));
+                .andExpect(jsonPath("$.data[0].title").value(post.getTitle()))
+                .andExpect(jsonPath("$.hasNext").value(true));
     }
 
     @Test
@@ -253,4 +269,163 @@ public class PostControllerTest {
                 .andExpect(jsonPath("$.data.id").value(postID))
                 .andExpect(jsonPath("$.data.title").value(post.getTitle()));
     }
+
+    @Test
+    @DisplayName("Find all post with summary fields")
+    @Order(13)
+    void findAllPostSummaryFields() throws Exception {
+        PostDTO summary = new PostDTO();
+        summary.setId(post.getId());
+        summary.setTitle(post.getTitle());
+        summary.setOwner(user);
+        given(postService.findAllPostSummary(any())).willReturn(page(List.of(summary)));
+
+        mvc.perform(get("/post").param("fields", "id,title"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.data[0].id").value(post.getId()))
+                .andExpect(jsonPath("$.data[0].title").value(post.getTitle()))
+                .andExpect(jsonPath("$.data[0].owner").doesNotExist())
+                .andExpect(jsonPath("$.data[0].content").doesNotExist())
+                .andExpect(jsonPath("$.hasNext").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Find all post with content field")
+    @Order(14)
+    void findAllPostContentField() throws Exception {
+        given(postService.findAllPost(any())).willReturn(page(posts));
+
+        mvc.perform(get("/post").param("fields", "id,content"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.data[0].id").value(post.getId()))
+                .andExpect(jsonPath("$.data[0].content").value(post.getContent()))
+                .andExpect(jsonPath("$.data[0].title").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Find post feed by cursor")
+    @Order(15)
+    void findPostFeed() throws Exception {
+        MappedPage<PostDTO> feed = page(posts);
+        feed.setNextCursor("next");
+        given(postService.findPostFeed(eq(""), eq(10))).willReturn(feed);
+
+        mvc.perform(get("/post").param("cursor", ""))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.data[0].id").value(post.getId()))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    @DisplayName("Find post by title with cursor")
+    @Order(16)
+    void findPostByTitleWithCursor() throws Exception {
+        mvc.perform(get("/post").param("title", post.getTitle()).param("cursor", ""))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.code").value("406"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Count post")
+    @Order(17)
+    void countPost() throws Exception {
+        given(countService.countPost()).willReturn(42L);
+
+        mvc.perform(get("/post/count"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.data").value(42));
+    }
+
+    @Test
+    @DisplayName("Search post")
+    @Order(18)
+    void searchPost() throws Exception {
+        given(postService.searchPost(eq("title"), any())).willReturn(page(posts));
+
+        mvc.perform(get("/post").param("search", "title"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.data[0].id").value(post.getId()))
+                .andExpect(jsonPath("$.data[0].title").value(post.getTitle()));
+    }
+
+    @Test
+    @DisplayName("Find post by ID not modified")
+    @Order(19)
+    void findPostByIdNotModified() throws Exception {
+        String id = post.getId();
+        given(postService.findPostModifyDate(id)).willReturn(LocalDateTime.of(2022, 8, 1, 10, 0));
+        given(postService.findPostResponseByID(id))
+                .willReturn(objectMapper.writeValueAsBytes(new ResponseObject(post)));
+        String etag = mvc.perform(get("/post").param("id", id))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().string("ETag", startsWith("W/")))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/post").param("id", id).header("If-None-Match", etag))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(postService, times(1)).findPostResponseByID(id);
+        // View of the 304 is counted too
+        verify(postService, times(1)).recordPostView(id);
+    }
+
+    @Test
+    @DisplayName("Find all post modified after ETag")
+    @Order(20)
+    void findAllPostModified() throws Exception {
+        PostDTO edited = new PostDTO();
+        edited.setId(post.getId());
+        edited.setModifyDate(LocalDateTime.of(2022, 8, 1, 10, 0));
+        // A new page for each request, as read from database
+        given(postService.findAllPost(any())).willAnswer(invocation -> page(List.of(edited)));
+        String etag = mvc.perform(get("/post"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        edited.setModifyDate(LocalDateTime.of(2022, 8, 2, 10, 0));
+
+        mvc.perform(get("/post").header("If-None-Match", etag))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].id").value(post.getId()));
+    }
+
+    @Test
+    @DisplayName("Find all post not modified is not mapped")
+    @Order(21)
+    void findAllPostNotModified() throws Exception {
+        AtomicInteger mapped = new AtomicInteger();
+        given(postService.findAllPost(any())).willAnswer(invocation -> MappedPage.of(posts, PostDTO::getId,
+                PostDTO::getModifyDate, post -> {
+                    mapped.incrementAndGet();
+                    return post;
+                }));
+        String etag = mvc.perform(get("/post"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/post").header("If-None-Match", etag))
+                .andDo(print())
+                .andExpect(status().isNotModified());
+        assertEquals(posts.size(), mapped.get());
+    }
+
+    // Page as returned by service, posts are already DTO in these tests
+    private static MappedPage<PostDTO> page(List<PostDTO> posts) {
+        return MappedPage.of(posts, PostDTO::getId, PostDTO::getModifyDate, Function.identity());
+    }
 }
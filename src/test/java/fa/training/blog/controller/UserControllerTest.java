@@ -4,11 +4,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import fa.training.blog.dto.UserDTO;
 import fa.training.blog.security.JwtTokenUtil;
 import fa.training.blog.security.JwtUserDetailsService;
+import fa.training.blog.service.CountService;
 import fa.training.blog.service.UserService;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -36,6 +38,8 @@ public class UserControllerTest {
     @MockBean
     private UserService userService;
     @MockBean
+    private CountService countService;
+    @MockBean
     private JwtUserDetailsService jwtUserDetailsService;
     @MockBean
     private JwtTokenUtil jwtTokenUtil;
@@ -130,7 +134,7 @@ public class UserControllerTest {
     @DisplayName("Find all user")
     @Order(6)
     public void findAllUser() throws Exception {
-        given(userService.findAllUser(any())).willReturn(users);
+        given(userService.findAllUser(any())).willReturn(new SliceImpl<>(users));
 
         mvc.perform(get("/user"))
                 .andDo(print())
@@ -138,7 +142,8 @@ public class UserControllerTest {
                 .andExpect(content().contentType("application/json"))
                 .andExpect(jsonPath("$.data", hasSize(2)))
                 .andExpect(jsonPath("$.data[0].password").value("12345678"))
-                .andExpect(jsonPath("$.data[1].username").value("user2"));
+                .andExpect(jsonPath("$.data[1].username").value("user2"))
+                .andExpect(jsonPath("$.hasNext").value(false));
     }
 
     @Test
@@ -0,0 +1,43 @@
+package fa.training.blog.loadtest;
+
+import java.util.Arrays;
+
+// Latencies (nanoseconds) of one endpoint or run, recorded by all worker threads
+class LatencyStats {
+    private long[] latencies = new long[1024];
+    private int size;
+    private int errors;
+
+    synchronized void record(long latency, boolean error) {
+        if (size == latencies.length) {
+            latencies = Arrays.copyOf(latencies, size * 2);
+        }
+        latencies[size++] = latency;
+        if (error) {
+            errors++;
+        }
+    }
+
+    synchronized int count() {
+        return size;
+    }
+
+    synchronized int errors() {
+        return errors;
+    }
+
+    synchronized long[] sortedLatencies() {
+        long[] sorted = Arrays.copyOf(latencies, size);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    // In milliseconds
+    static double percentile(long[] sortedLatencies, double percentile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,212 @@
+package fa.training.blog.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Boots the whole application on in-memory H2 (schema by Flyway), seeds users, posts and comments,
+// then sends a mix of requests from many threads and reports latency percentiles and throughput per endpoint.
+// Not run by "mvn test", run with: ./mvnw -Ploadtest test
+// Settings (system properties): loadtest.users, loadtest.posts, loadtest.comments, loadtest.threads,
+// loadtest.warmup-seconds, loadtest.seconds
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "blog.search.index-dir=target/loadtest/post-index"
+})
+public class LoadTest {
+    private static final int USERS = Integer.getInteger("loadtest.users", 200);
+    private static final int POSTS = Integer.getInteger("loadtest.posts", 2_000);
+    private static final int COMMENTS = Integer.getInteger("loadtest.comments", 20_000);
+    private static final int THREADS = Integer.getInteger("loadtest.threads", 16);
+    private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup-seconds", 10);
+    private static final int SECONDS = Integer.getInteger("loadtest.seconds", 30);
+    private static final String PASSWORD = "password123";
+    private static final Path RESULT_FILE = Path.of("target", "loadtest", "loadtest-result.csv");
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private ApplicationContext applicationContext;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final List<String> postIDs = new ArrayList<>();
+    // Share of requests of each endpoint, in percent
+    private final Map<String, Integer> mix = new LinkedHashMap<>();
+    private final Map<String, LatencyStats> stats = new LinkedHashMap<>();
+
+    @Test
+    @DisplayName("Load test with a mix of requests")
+    void loadTest() throws Exception {
+        // Given
+        postIDs.addAll(LoadTestData.seed(applicationContext, USERS, POSTS, COMMENTS, PASSWORD));
+        mix.put("POST /signin", 5);
+        mix.put("GET /post?id", 30);
+        mix.put("GET /post?cursor", 15);
+        mix.put("GET /post?owner", 10);
+        mix.put("GET /comment?post", 25);
+        mix.put("POST /comment", 10);
+        mix.put("GET /user?username", 5);
+        mix.keySet().forEach(endpoint -> stats.put(endpoint, new LatencyStats()));
+        String adminToken = signIn("admin");
+
+        // When
+        long measureFrom = System.nanoTime() + Duration.ofSeconds(WARMUP_SECONDS).toNanos();
+        long until = measureFrom + Duration.ofSeconds(SECONDS).toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            String username = "user" + (i % USERS);
+            workers.add(executor.submit(() -> {
+                String token = signIn(username);
+                while (System.nanoTime() < until) {
+                    sendOne(username, token, adminToken, measureFrom);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executor.shutdown();
+
+        // Then
+        report();
+        stats.forEach((endpoint, endpointStats) -> {
+            assertTrue(endpointStats.count() > 0, endpoint + " was not measured");
+            assertEquals(0, endpointStats.errors(), endpoint + " had errors");
+        });
+    }
+
+    private void sendOne(String username, String token, String adminToken, long measureFrom) throws Exception {
+        String endpoint = pickEndpoint();
+        String postID = postIDs.get(ThreadLocalRandom.current().nextInt(postIDs.size()));
+        String owner = "user" + ThreadLocalRandom.current().nextInt(USERS);
+        HttpRequest request;
+        switch (endpoint) {
+            case "POST /signin":
+                request = post("/signin", null, signInBody(username));
+                break;
+            case "GET /post?id":
+                request = get("/post?id=" + postID, null);
+                break;
+            case "GET /post?cursor":
+                request = get("/post?cursor=", null);
+                break;
+            case "GET /post?owner":
+                request = get("/post?owner=" + owner, null);
+                break;
+            case "GET /comment?post":
+                request = get("/comment?post=" + postID, null);
+                break;
+            case "POST /comment":
+                request = post("/comment?post=" + postID, token, "{\"content\":\"Comment of load test\"}");
+                break;
+            default:
+                request = get("/user?username=" + owner, adminToken);
+                break;
+        }
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        long end = System.nanoTime();
+        if (start >= measureFrom) {
+            stats.get(endpoint).record(end - start, response.statusCode() >= 400);
+        }
+    }
+
+    private String pickEndpoint() {
+        int value = ThreadLocalRandom.current().nextInt(100);
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            value -= entry.getValue();
+            if (value < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Mix must add up to 100");
+    }
+
+    private String signIn(String username) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(post("/signin", null, signInBody(username)),
+                HttpResponse.BodyHandlers.ofString());
+        JsonNode body = objectMapper.readTree(response.body());
+        assertEquals("200", body.path("code").asText(), "Cannot sign in " + username + ": " + response.body());
+        return body.path("data").asText();
+    }
+
+    private String signInBody(String username) {
+        return "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}";
+    }
+
+    private HttpRequest get(String path, String token) {
+        return request(path, token).GET().build();
+    }
+
+    private HttpRequest post(String path, String token, String body) {
+        return request(path, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api" + path));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    // Printed and written to target/loadtest/loadtest-result.csv, latencies in milliseconds
+    private void report() throws IOException {
+        Files.createDirectories(RESULT_FILE.getParent());
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(RESULT_FILE))) {
+            csv.println("endpoint,requests,errors,requests_per_second,p50_ms,p99_ms,p999_ms");
+            System.out.printf("%-20s %10s %8s %10s %10s %10s %10s%n",
+                    "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p99 ms", "p999 ms");
+            for (Map.Entry<String, LatencyStats> entry : stats.entrySet()) {
+                LatencyStats endpointStats = entry.getValue();
+                long[] latencies = endpointStats.sortedLatencies();
+                double requestsPerSecond = (double) latencies.length / SECONDS;
+                double p50 = LatencyStats.percentile(latencies, 0.50);
+                double p99 = LatencyStats.percentile(latencies, 0.99);
+                double p999 = LatencyStats.percentile(latencies, 0.999);
+                System.out.printf("%-20s %10d %8d %10.1f %10.2f %10.2f %10.2f%n", entry.getKey(), latencies.length,
+                        endpointStats.errors(), requestsPerSecond, p50, p99, p999);
+                csv.printf("%s,%d,%d,%.1f,%.2f,%.2f,%.2f%n", entry.getKey(), latencies.length, endpointStats.errors(),
+                        requestsPerSecond, p50, p99, p999);
+            }
+        }
+    }
+}
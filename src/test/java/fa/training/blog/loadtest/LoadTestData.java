@@ -0,0 +1,71 @@
+package fa.training.blog.loadtest;
+
+import fa.training.blog.service.PostSearchService;
+import fa.training.blog.service.UserNameIndexService;
+import fa.training.blog.utils.IdGenerator;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Users (admin, user0, user1...), posts and comments of load tests, inserted with plain SQL
+class LoadTestData {
+    private LoadTestData() {
+    }
+
+    /**
+     * Delete all rows then insert users, posts and comments, all users share one encoded password
+     * (encoding is slow on purpose)
+     * @return IDs of posts
+     */
+    static List<String> seed(ApplicationContext context, int userCount, int postCount, int commentCount,
+                             String password) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        IdGenerator idGenerator = context.getBean(IdGenerator.class);
+        // Database may be reused by another run (loadtest.datasource-url)
+        jdbcTemplate.update("DELETE FROM comment");
+        jdbcTemplate.update("DELETE FROM post");
+        jdbcTemplate.update("DELETE FROM user");
+
+        String encodedPassword = context.getBean(PasswordEncoder.class).encode(password);
+        List<Object[]> users = new ArrayList<>();
+        users.add(new Object[]{"admin", encodedPassword, "admin@mail.com", "Ad", "Min", "ROLE_ADMIN"});
+        for (int i = 0; i < userCount; i++) {
+            users.add(new Object[]{"user" + i, encodedPassword, "user" + i + "@mail.com", "First" + i, "Last" + i,
+                    "ROLE_USER"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO user (username, password, email, first_name, last_name, role) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", users);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<String> postIDs = new ArrayList<>();
+        List<Object[]> posts = new ArrayList<>();
+        for (int i = 0; i < postCount; i++) {
+            String id = idGenerator.nextId();
+            postIDs.add(id);
+            Timestamp createDate = Timestamp.valueOf(now.minusMinutes(postCount - i));
+            posts.add(new Object[]{id, "Title of post " + i, "Content of post " + i, createDate, createDate,
+                    "user" + (i % userCount)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO post (id, title, content, create_date, modify_date, view, "
+                + "owner_username) VALUES (?, ?, ?, ?, ?, 0, ?)", posts);
+
+        List<Object[]> comments = new ArrayList<>();
+        for (int i = 0; i < commentCount; i++) {
+            Timestamp createDate = Timestamp.valueOf(now.minusSeconds(commentCount - i));
+            comments.add(new Object[]{idGenerator.nextId(), "Comment " + i, createDate, createDate,
+                    "user" + (i % userCount), postIDs.get(i % postCount)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO comment (id, content, create_date, modify_date, deleted, "
+                + "owner_username, post_id) VALUES (?, ?, ?, ?, FALSE, ?, ?)", comments);
+
+        // Indexes were built at startup from the database before seeding
+        context.getBean(UserNameIndexService.class).rebuild();
+        context.getBean(PostSearchService.class).rebuild();
+        return postIDs;
+    }
+}
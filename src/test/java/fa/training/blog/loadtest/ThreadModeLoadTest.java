@@ -0,0 +1,217 @@
+package fa.training.blog.loadtest;
+
+import fa.training.blog.BlogApplication;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Throughput of the same requests with Tomcat on its pool of platform threads (default) and on virtual threads
+// (build with profile "virtual-threads"), at 1000 and 10000 concurrent connections. Each run starts the application
+// again and seeds it, then every connection sends its next request as soon as the last one is answered.
+// Not run by "mvn test", run with: ./mvnw -Pvirtual-threads,loadtest test -Dtest=ThreadModeLoadTest
+// (without profile "virtual-threads" only platform threads are measured).
+// Settings (system properties): loadtest.connections (comma separated), loadtest.warmup-seconds, loadtest.seconds,
+// and loadtest.datasource-url, loadtest.datasource-username, loadtest.datasource-password to run on MySQL instead of
+// in-memory H2 (H2 never waits on the network, so virtual threads gain little on it)
+@Tag("loadtest")
+public class ThreadModeLoadTest {
+    private static final String VIRTUAL_THREAD_CONFIG = "fa.training.blog.configuration.VirtualThreadConfig";
+    private static final List<Integer> CONNECTIONS = Arrays.stream(
+                    System.getProperty("loadtest.connections", "1000,10000").split(","))
+            .map(String::trim)
+            .map(Integer::valueOf)
+            .collect(Collectors.toList());
+    private static final int USERS = Integer.getInteger("loadtest.users", 200);
+    private static final int POSTS = Integer.getInteger("loadtest.posts", 2_000);
+    private static final int COMMENTS = Integer.getInteger("loadtest.comments", 20_000);
+    private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup-seconds", 10);
+    private static final int SECONDS = Integer.getInteger("loadtest.seconds", 30);
+    private static final String DATASOURCE_URL = System.getProperty("loadtest.datasource-url");
+    private static final String PASSWORD = "password123";
+    private static final Path RESULT_FILE = Path.of("target", "loadtest", "thread-mode-result.csv");
+
+    // Key is "threads,connections"
+    private final Map<String, LatencyStats> results = new LinkedHashMap<>();
+
+    @Test
+    @DisplayName("Compare platform and virtual threads at many concurrent connections")
+    void compareThreadModes() throws Exception {
+        // Given
+        List<Boolean> modes = new ArrayList<>(List.of(false));
+        if (ClassUtils.isPresent(VIRTUAL_THREAD_CONFIG, null)) {
+            modes.add(true);
+        } else {
+            System.out.println("VirtualThreadConfig is not compiled (profile virtual-threads), "
+                    + "only platform threads are measured");
+        }
+
+        // When
+        int run = 0;
+        for (boolean virtual : modes) {
+            for (int connections : CONNECTIONS) {
+                results.put((virtual ? "virtual" : "platform") + "," + connections, measure(virtual, connections, run++));
+            }
+        }
+
+        // Then
+        report();
+        results.forEach((key, stats) -> assertTrue(stats.count() > 0, key + " was not measured"));
+    }
+
+    private LatencyStats measure(boolean virtual, int connections, int run) throws InterruptedException {
+        try (ConfigurableApplicationContext context = start(virtual, connections, run)) {
+            TomcatWebServer webServer = (TomcatWebServer) ((ServletWebServerApplicationContext) context).getWebServer();
+            // Tomcat creates its own pool only when no executor was given (by VirtualThreadConfig)
+            Executor executor = webServer.getTomcat().getConnector().getProtocolHandler().getExecutor();
+            assertEquals(!virtual, executor instanceof ThreadPoolExecutor, "Requests do not run on expected threads");
+            List<String> postIDs = LoadTestData.seed(context, USERS, POSTS, COMMENTS, PASSWORD);
+            return new ClosedLoop(webServer.getPort(), postIDs).run(connections);
+        }
+    }
+
+    // Command line arguments, so they override application.properties
+    private ConfigurableApplicationContext start(boolean virtual, int connections, int run) {
+        List<String> args = new ArrayList<>();
+        if (DATASOURCE_URL != null) {
+            args.add("--spring.datasource.url=" + DATASOURCE_URL);
+            args.add("--spring.datasource.username=" + System.getProperty("loadtest.datasource-username", "root"));
+            args.add("--spring.datasource.password=" + System.getProperty("loadtest.datasource-password", ""));
+        } else {
+            args.add("--spring.datasource.url=jdbc:h2:mem:thread-mode-" + run + ";MODE=MySQL;NON_KEYWORDS=USER");
+            args.add("--spring.datasource.username=sa");
+            args.add("--spring.datasource.password=");
+        }
+        args.add("--server.port=0");
+        args.add("--management.server.port=0");
+        // Default limit (8192) is below the largest run, connections over it would wait to be accepted
+        args.add("--server.tomcat.max-connections=" + (connections + 1000));
+        args.add("--server.tomcat.accept-count=1000");
+        args.add("--blog.virtual-threads.enabled=" + virtual);
+        args.add("--blog.search.index-dir=target/loadtest/thread-mode-index-" + run);
+        args.add("--spring.jpa.properties.hibernate.format_sql=false");
+        // generate_statistics logs metrics of every session, at this rate the run would measure logging
+        args.add("--logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn");
+        return new SpringApplicationBuilder(BlogApplication.class).run(args.toArray(new String[0]));
+    }
+
+    // Printed and written to target/loadtest/thread-mode-result.csv, latencies in milliseconds
+    private void report() throws IOException {
+        Files.createDirectories(RESULT_FILE.getParent());
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(RESULT_FILE))) {
+            csv.println("threads,connections,requests,errors,requests_per_second,p50_ms,p99_ms,p999_ms");
+            System.out.printf("%-10s %12s %10s %8s %10s %10s %10s %10s%n",
+                    "Threads", "Connections", "Requests", "Errors", "Req/s", "p50 ms", "p99 ms", "p999 ms");
+            for (Map.Entry<String, LatencyStats> entry : results.entrySet()) {
+                String[] key = entry.getKey().split(",");
+                LatencyStats stats = entry.getValue();
+                long[] latencies = stats.sortedLatencies();
+                double requestsPerSecond = (double) latencies.length / SECONDS;
+                double p50 = LatencyStats.percentile(latencies, 0.50);
+                double p99 = LatencyStats.percentile(latencies, 0.99);
+                double p999 = LatencyStats.percentile(latencies, 0.999);
+                System.out.printf("%-10s %12s %10d %8d %10.1f %10.2f %10.2f %10.2f%n", key[0], key[1],
+                        latencies.length, stats.errors(), requestsPerSecond, p50, p99, p999);
+                csv.printf("%s,%s,%d,%d,%.1f,%.2f,%.2f,%.2f%n", key[0], key[1], latencies.length, stats.errors(),
+                        requestsPerSecond, p50, p99, p999);
+            }
+        }
+    }
+
+    // Keeps one request in flight on each connection. Requests are sent asynchronously, so the client does not
+    // need a thread per connection and measures the server, not its own threads.
+    private static class ClosedLoop {
+        private final HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        private final LatencyStats stats = new LatencyStats();
+        private final int port;
+        private final List<String> postIDs;
+        private long measureFrom;
+        private long until;
+        private CountDownLatch done;
+
+        private ClosedLoop(int port, List<String> postIDs) {
+            this.port = port;
+            this.postIDs = postIDs;
+        }
+
+        private LatencyStats run(int connections) throws InterruptedException {
+            long warmup = Duration.ofSeconds(WARMUP_SECONDS).toNanos();
+            measureFrom = System.nanoTime() + warmup;
+            until = measureFrom + Duration.ofSeconds(SECONDS).toNanos();
+            done = new CountDownLatch(connections);
+            for (int i = 0; i < connections; i++) {
+                // Connections are opened during the first half of warm-up, not all at the same time
+                Executor delayed = CompletableFuture.delayedExecutor(warmup / 2 * i / connections, TimeUnit.NANOSECONDS);
+                delayed.execute(this::sendNext);
+            }
+            done.await();
+            return stats;
+        }
+
+        private void sendNext() {
+            if (System.nanoTime() >= until) {
+                done.countDown();
+                return;
+            }
+            long start = System.nanoTime();
+            httpClient.sendAsync(nextRequest(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (start >= measureFrom) {
+                            stats.record(System.nanoTime() - start, error != null || response.statusCode() >= 400);
+                        }
+                        sendNext();
+                    });
+        }
+
+        // Reads only, signing in is limited by password hashing threads whatever threads serve requests
+        private HttpRequest nextRequest() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String postID = postIDs.get(random.nextInt(postIDs.size()));
+            String path;
+            int value = random.nextInt(100);
+            if (value < 40) {
+                path = "/post?id=" + postID;
+            } else if (value < 80) {
+                path = "/comment?post=" + postID;
+            } else {
+                path = "/post?owner=user" + random.nextInt(USERS);
+            }
+            return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api" + path))
+                    .timeout(Duration.ofSeconds(60))
+                    .GET()
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package fa.training.blog.repository;
+
+import fa.training.blog.entity.Post;
+import fa.training.blog.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Every finder must read through an index: EXPLAIN of each query it runs (on the schema created by Flyway)
+// must not contain a table scan.
+// Not checked: findAllBy and findAllSummary read the whole table page by page on purpose, streamAllBy and
+// streamSummaryByDeletedIn read the whole table for export, and
+// findByTitleIgnoreCaseContains / findSummaryByTitleIgnoreCaseContains ("like '%title%'") cannot use an index,
+// search of posts by words goes through the search index instead.
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:blog;MODE=MySQL;NON_KEYWORDS=USER",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "fa.training.blog.repository.FinderIndexTest$SqlRecorder"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class FinderIndexTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2022, 8, 1, 10, 0);
+    private static final List<Boolean> NOT_DELETED = List.of(false);
+    // Same sorts as controllers
+    private static final Pageable POST_PAGE = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "createDate"));
+    private static final Pageable COMMENT_PAGE = PageRequest.of(0, 10,
+            Sort.by("post").and(Sort.by(Sort.Direction.DESC, "createDate")));
+    private static final Pageable FEED_PAGE = PageRequest.of(0, 11);
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+
+    private User user;
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        user = entityManager.persist(new User("user", "password", "user@mail.com", "First", "Last", "ROLE_USER"));
+        post = new Post();
+        post.setId("post");
+        post.setTitle("Title");
+        post.setContent("Content");
+        post.setCreateDate(NOW);
+        post.setOwner(user);
+        post = entityManager.persist(post);
+        entityManager.flush();
+        entityManager.clear();
+        // Finders must run their query, not be answered from cache
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        SqlRecorder.STATEMENTS.clear();
+    }
+
+    static Stream<Arguments> finders() {
+        return Stream.of(
+                finder("UserRepository.findById", test -> test.userRepository.findById("user")),
+                finder("UserRepository.findByEmail", test -> test.userRepository.findByEmail("user@mail.com")),
+                finder("UserRepository.findAllById", test -> test.userRepository.findAllById(List.of("user"))),
+                finder("UserRepository.findExistingUsernames",
+                        test -> test.userRepository.findExistingUsernames(List.of("user", "other"))),
+                finder("UserRepository.findExistingEmails",
+                        test -> test.userRepository.findExistingEmails(List.of("user@mail.com", "other@mail.com"))),
+
+                finder("PostRepository.findById", test -> test.postRepository.findById("post")),
+                finder("PostRepository.findAllById", test -> test.postRepository.findAllById(List.of("post"))),
+                finder("PostRepository.findModifyDateById", test -> test.postRepository.findModifyDateById("post")),
+                finder("PostRepository.findByOwner", test -> test.postRepository.findByOwner(test.user, POST_PAGE)),
+                finder("PostRepository.findByCreateDateBetween",
+                        test -> test.postRepository.findByCreateDateBetween(NOW.minusDays(1), NOW, POST_PAGE)),
+                finder("PostRepository.findSummaryByOwner",
+                        test -> test.postRepository.findSummaryByOwner("user", POST_PAGE)),
+                finder("PostRepository.findSummaryByCreateDateBetween",
+                        test -> test.postRepository.findSummaryByCreateDateBetween(NOW.minusDays(1), NOW, POST_PAGE)),
+                finder("PostRepository.findFeed", test -> test.postRepository.findFeed(NOW, "post", FEED_PAGE)),
+                finder("PostRepository.findFeedByOwner",
+                        test -> test.postRepository.findFeedByOwner("user", NOW, "post", FEED_PAGE)),
+
+                finder("CommentRepository.findById", test -> test.commentRepository.findById("comment")),
+                finder("CommentRepository.findByIdAndDeleted",
+                        test -> test.commentRepository.findByIdAndDeleted("comment", false)),
+                finder("CommentRepository.findModifyDateByIdAndDeletedIn",
+                        test -> test.commentRepository.findModifyDateByIdAndDeletedIn("comment", NOT_DELETED)),
+                finder("CommentRepository.countByDeleted", test -> test.commentRepository.countByDeleted(false)),
+                finder("CommentRepository.findByOwner",
+                        test -> test.commentRepository.findByOwner(test.user, COMMENT_PAGE)),
+                finder("CommentRepository.findByPost",
+                        test -> test.commentRepository.findByPost(test.post, COMMENT_PAGE)),
+                finder("CommentRepository.findByCreateDateBetween",
+                        test -> test.commentRepository.findByCreateDateBetween(NOW.minusDays(1), NOW, COMMENT_PAGE)),
+                finder("CommentRepository.findByOwnerAndDeleted",
+                        test -> test.commentRepository.findByOwnerAndDeleted(test.user, false, COMMENT_PAGE)),
+                finder("CommentRepository.findByPostAndDeleted",
+                        test -> test.commentRepository.findByPostAndDeleted(test.post, false, COMMENT_PAGE)),
+                finder("CommentRepository.findByDeletedAndCreateDateBetween",
+                        test -> test.commentRepository.findByDeletedAndCreateDateBetween(false, NOW.minusDays(1), NOW,
+                                COMMENT_PAGE)),
+                finder("CommentRepository.findByDeleted",
+                        test -> test.commentRepository.findByDeleted(false, COMMENT_PAGE)),
+                finder("CommentRepository.findSummaryByDeletedIn",
+                        test -> test.commentRepository.findSummaryByDeletedIn(NOT_DELETED, COMMENT_PAGE)),
+                finder("CommentRepository.findSummaryByOwnerAndDeletedIn",
+                        test -> test.commentRepository.findSummaryByOwnerAndDeletedIn("user", NOT_DELETED,
+                                COMMENT_PAGE)),
+                finder("CommentRepository.findSummaryByPostAndDeletedIn",
+                        test -> test.commentRepository.findSummaryByPostAndDeletedIn("post", NOT_DELETED,
+                                COMMENT_PAGE)),
+                finder("CommentRepository.findSummaryByCreateDateBetweenAndDeletedIn",
+                        test -> test.commentRepository.findSummaryByCreateDateBetweenAndDeletedIn(NOW.minusDays(1),
+                                NOW, NOT_DELETED, COMMENT_PAGE)),
+                finder("CommentRepository.findSummaryFeed",
+                        test -> test.commentRepository.findSummaryFeed(NOT_DELETED, NOW, "comment", FEED_PAGE)),
+                finder("CommentRepository.findSummaryFeedByOwner",
+                        test -> test.commentRepository.findSummaryFeedByOwner("user", NOT_DELETED, NOW, "comment",
+                                FEED_PAGE)),
+                finder("CommentRepository.findSummaryFeedByPost",
+                        test -> test.commentRepository.findSummaryFeedByPost("post", NOT_DELETED, NOW, "comment",
+                                FEED_PAGE)),
+                finder("CommentRepository.streamSummaryByOwnerAndDeletedIn",
+                        test -> test.commentRepository.streamSummaryByOwnerAndDeletedIn("user", NOT_DELETED).close()),
+                finder("CommentRepository.streamSummaryByPostAndDeletedIn",
+                        test -> test.commentRepository.streamSummaryByPostAndDeletedIn("post", NOT_DELETED).close())
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("finders")
+    @DisplayName("Finder reads through an index")
+    void finderUsesIndex(String name, Finder finder) {
+        // When
+        finder.find(this);
+
+        // Then
+        List<String> queries = SqlRecorder.STATEMENTS.stream()
+                .filter(sql -> sql.trim().toLowerCase().startsWith("select"))
+                .collect(Collectors.toList());
+        assertFalse(queries.isEmpty(), name + " did not run any query");
+        for (String sql : queries) {
+            String plan = explain(sql);
+            assertFalse(plan.contains(".tableScan"), name + " scans a whole table:\n" + plan);
+        }
+    }
+
+    private String explain(String sql) {
+        return new JdbcTemplate(dataSource).execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                // Plan is made before values are known, they are only set because H2 needs every parameter
+                int parameters = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    statement.setNull(i, Types.NULL);
+                }
+                try (ResultSet plan = statement.executeQuery()) {
+                    plan.next();
+                    return plan.getString(1);
+                }
+            }
+        });
+    }
+
+    private static Arguments finder(String name, Finder finder) {
+        return Arguments.of(name, finder);
+    }
+
+    @FunctionalInterface
+    interface Finder {
+        void find(FinderIndexTest test);
+    }
+
+    // Registered in Hibernate (see properties above) to get SQL of each finder
+    public static class SqlRecorder implements StatementInspector {
+        private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
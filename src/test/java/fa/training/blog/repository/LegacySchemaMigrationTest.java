@@ -0,0 +1,102 @@
+package fa.training.blog.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A database created by Hibernate (ddl-auto=update) before migrations is baselined at V1, so V1 never runs on it:
+// every index finders need must come from later versions.
+public class LegacySchemaMigrationTest {
+    private static final List<String> FEED_INDEXES = List.of("idx_post_create_date_id",
+            "idx_post_owner_create_date_id", "idx_comment_create_date_id", "idx_comment_post_create_date_id",
+            "idx_comment_owner_create_date_id");
+    private static final List<String> FINDER_INDEXES = List.of("uk_user_email", "idx_user_role_username",
+            "idx_comment_post_deleted_create_date", "idx_comment_deleted_create_date_id");
+
+    @Test
+    @DisplayName("Baselined legacy database gets feed and finder indexes")
+    @Order(1)
+    void migrateLegacySchema() throws SQLException {
+        // Given
+        DataSource dataSource = legacyDatabase("legacy");
+
+        // When
+        migrate(dataSource);
+
+        // Then
+        Set<String> indexes = indexNames(dataSource);
+        FEED_INDEXES.forEach(index -> assertTrue(indexes.contains(index), index + " is missing"));
+        FINDER_INDEXES.forEach(index -> assertTrue(indexes.contains(index), index + " is missing"));
+        assertEquals(1, new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM post", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Baselined database that already has feed indexes is migrated")
+    @Order(2)
+    void migrateLegacySchemaWithFeedIndexes() throws SQLException {
+        // Given: made by ddl-auto=update while feed indexes were declared on the entities
+        DataSource dataSource = legacyDatabase("legacy-feed");
+        new JdbcTemplate(dataSource).execute("CREATE INDEX idx_post_create_date_id ON post (create_date, id)");
+
+        // When
+        migrate(dataSource);
+
+        // Then
+        Set<String> indexes = indexNames(dataSource);
+        FEED_INDEXES.forEach(index -> assertTrue(indexes.contains(index), index + " is missing"));
+    }
+
+    // Schema of V1 (as Hibernate created it) with some rows, and no Flyway history
+    private DataSource legacyDatabase(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__create_schema.sql"))
+                .execute(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO user (username, password, email, first_name, last_name, role) "
+                + "VALUES ('user', 'password', 'user@mail.com', 'First', 'Last', 'ROLE_USER')");
+        jdbcTemplate.update("INSERT INTO post (id, title, content, create_date, modify_date, view, owner_username) "
+                + "VALUES ('post', 'Title', 'Content', NOW(), NOW(), 0, 'user')");
+        return dataSource;
+    }
+
+    // Same settings as application.properties
+    private void migrate(DataSource dataSource) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+    }
+
+    private Set<String> indexNames(DataSource dataSource) throws SQLException {
+        Set<String> names = new HashSet<>();
+        try (Connection connection = dataSource.getConnection()) {
+            for (String table : List.of("USER", "POST", "COMMENT")) {
+                try (ResultSet indexes = connection.getMetaData().getIndexInfo(null, null, table, false, true)) {
+                    while (indexes.next()) {
+                        names.add(indexes.getString("INDEX_NAME").toLowerCase());
+                    }
+                }
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,125 @@
+package fa.training.blog.repository;
+
+import fa.training.blog.dto.CommentDTO;
+import fa.training.blog.dto.PostDTO;
+import fa.training.blog.entity.Comment;
+import fa.training.blog.entity.Post;
+import fa.training.blog.entity.User;
+import fa.training.blog.mapper.DtoMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Check owner and post are loaded in the same query as the page, whatever the page size (no N+1 queries)
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:blog;MODE=MySQL;NON_KEYWORDS=USER",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class RepositoryQueryCountTest {
+    private static final int USERS = 5;
+    private static final int POSTS = 30;
+    private static final int COMMENTS = 60;
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+
+    private final DtoMapper dtoMapper = new DtoMapper();
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        User[] users = new User[USERS];
+        for (int i = 0; i < USERS; i++) {
+            users[i] = entityManager.persist(new User("user" + i, "password" + i, "user" + i + "@mail.com",
+                    "First" + i, "Last" + i, "ROLE_USER"));
+        }
+        Post[] posts = new Post[POSTS];
+        for (int i = 0; i < POSTS; i++) {
+            Post post = new Post();
+            post.setId("post" + i);
+            post.setTitle("Title " + i);
+            post.setContent("Content " + i);
+            post.setCreateDate(now.minusMinutes(i));
+            post.setOwner(users[i % USERS]);
+            posts[i] = entityManager.persist(post);
+        }
+        for (int i = 0; i < COMMENTS; i++) {
+            Comment comment = new Comment();
+            comment.setId("comment" + i);
+            comment.setContent("Comment " + i);
+            comment.setCreateDate(now.minusMinutes(i));
+            comment.setOwner(users[i % USERS]);
+            comment.setPost(posts[i % POSTS]);
+            entityManager.persist(comment);
+        }
+        // Start from an empty persistence context so every entity has to be read from database
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {5, 10, 25})
+    @DisplayName("Page of posts with owners in one query")
+    @Order(1)
+    void findAllPostOneQuery(int size) {
+        List<PostDTO> posts = postRepository.findAllBy(PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "createDate")))
+                .stream().map(dtoMapper::toPostDTO).collect(Collectors.toList());
+
+        assertEquals(size, posts.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {5, 10, 25})
+    @DisplayName("Page of comments with owners and posts in one query")
+    @Order(2)
+    void findCommentByDeletedOneQuery(int size) {
+        PageRequest pageable = PageRequest.of(0, size, Sort.by("post").and(Sort.by(Sort.Direction.DESC, "createDate")));
+        List<CommentDTO> comments = commentRepository.findByDeleted(false, pageable)
+                .stream().map(dtoMapper::toCommentDTO).collect(Collectors.toList());
+
+        assertEquals(size, comments.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {5, 10, 25})
+    @DisplayName("Page of comments of an owner in one query")
+    @Order(3)
+    void findCommentByOwnerOneQuery(int size) {
+        User owner = entityManager.getEntityManager().getReference(User.class, "user0");
+        List<CommentDTO> comments = commentRepository.findByOwner(owner, PageRequest.of(0, size))
+                .stream().map(dtoMapper::toCommentDTO).collect(Collectors.toList());
+
+        assertEquals(Math.min(size, COMMENTS / USERS), comments.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,62 @@
+package fa.training.blog.security;
+
+import io.jsonwebtoken.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtTokenUtilTest {
+    private JwtTokenUtil jwtTokenUtil;
+    private JwtUserDetails userDetails;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenUtil = new JwtTokenUtil(100);
+        userDetails = new JwtUserDetails("user", "password", new ArrayList<>());
+    }
+
+    @Test
+    @DisplayName("Validate token return its claims")
+    @Order(1)
+    void validateTokenReturnClaims() {
+        String token = jwtTokenUtil.generateToken(userDetails);
+
+        ValidatedToken actual = jwtTokenUtil.validateToken(token);
+
+        assertEquals("user", actual.getUsername());
+        assertNotNull(actual.getIssuedAt());
+        assertTrue(actual.getExpiration().after(actual.getIssuedAt()));
+        assertFalse(actual.isExpired());
+    }
+
+    @Test
+    @DisplayName("Validate same token again use verified claims")
+    @Order(2)
+    void validateTokenAgainUseCache() {
+        String token = jwtTokenUtil.generateToken(userDetails);
+
+        ValidatedToken first = jwtTokenUtil.validateToken(token);
+        ValidatedToken second = jwtTokenUtil.validateToken(token);
+
+        assertSame(first, second);
+        assertTrue(jwtTokenUtil.validateToken(token, userDetails));
+    }
+
+    @Test
+    @DisplayName("Validate tampered token throw exception")
+    @Order(3)
+    void validateTamperedToken() {
+        String token = jwtTokenUtil.generateToken(userDetails);
+        // Change one character inside the signature
+        int index = token.lastIndexOf('.') + 5;
+        char replacement = token.charAt(index) == 'A' ? 'B' : 'A';
+        String tampered = token.substring(0, index) + replacement + token.substring(index + 1);
+
+        assertThrows(SignatureException.class, () -> jwtTokenUtil.validateToken(tampered));
+    }
+}
@@ -7,20 +7,27 @@ import fa.training.blog.entity.Comment;
 import fa.training.blog.entity.Post;
 import fa.training.blog.entity.User;
 import fa.training.blog.exception.MyException;
+import fa.training.blog.mapper.DtoMapper;
+import fa.training.blog.model.MappedPage;
+import fa.training.blog.model.ResponseObject;
 import fa.training.blog.repository.CommentRepository;
 import fa.training.blog.service.impl.CommentServiceImpl;
+import fa.training.blog.utils.IdGenerator;
+import fa.training.blog.utils.UuidIdGenerator;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import javax.validation.Validation;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -30,6 +37,9 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 public class CommentServiceImplTest {
@@ -42,7 +52,9 @@ public class CommentServiceImplTest {
     @Mock
     private PostService postService;
     @Spy
-    private ModelMapper modelMapper;
+    private DtoMapper dtoMapper;
+    @Spy
+    private IdGenerator idGenerator = new UuidIdGenerator();
 
     private static CommentDTO commentDTO;
     private static CommentDTO commentDTOCreate;
@@ -84,7 +96,7 @@ public class CommentServiceImplTest {
 
     @BeforeEach
     public void init() {
-        comment = modelMapper.map(commentDTO, Comment.class);
+        comment = dtoMapper.toComment(commentDTO);
         comments.add(comment);
     }
 
@@ -100,7 +112,10 @@ public class CommentServiceImplTest {
         // Given
         String postID = postDTO.getId();
         String username = userDTO.getUsername();
-        given(postService.findPostByID(postID)).willReturn(postDTO);
+        given(postService.existsPostByID(postID)).willReturn(true);
+        // Built before stubbing: calling the spied mapper inside given(...) would leave the stubbing unfinished
+        Post post = dtoMapper.toPost(postDTO);
+        given(postService.getPostReference(postID)).willReturn(post);
         given(userService.findUserByUsername(username)).willReturn(userDTO);
         given(commentRepository.save(any(Comment.class))).willReturn(comment);
 
@@ -117,7 +132,7 @@ public class CommentServiceImplTest {
     void createCommentPostNotFound() {
         // Given
         String postID = postDTO.getId();
-        given(postService.findPostByID(postID)).willReturn(null);
+        given(postService.existsPostByID(postID)).willReturn(false);
 
         // when
         MyException exception = assertThrows(MyException.class, () -> commentService.createComment(commentDTOCreate, postID, userDTO.getUsername()));
@@ -135,7 +150,7 @@ public class CommentServiceImplTest {
         String username = userDTO.getUsername();
         String postID = postDTO.getId();
         given(userService.findUserByUsername(username)).willReturn(null);
-        given(postService.findPostByID(postID)).willReturn(postDTO);
+        given(postService.existsPostByID(postID)).willReturn(true);
 
         // when
         MyException exception = assertThrows(MyException.class, () -> commentService.createComment(commentDTOCreate, postID, username));
@@ -150,7 +165,7 @@ public class CommentServiceImplTest {
     @Order(4)
     void editCommentSuccess() {
         // Given
-        Comment editedComment = modelMapper.map(commentDTO, Comment.class);
+        Comment editedComment = dtoMapper.toComment(commentDTO);
         editedComment.setContent("This comment edited");
         given(commentRepository.findByIdAndDeleted(commentDTO.getId(), false)).willReturn(comment);
         given(commentRepository.saveAndFlush(any(Comment.class))).willReturn(editedComment);
@@ -200,7 +215,7 @@ public class CommentServiceImplTest {
     void softDeleteCommentOwnerSuccess() {
         // Given
         String commentID = commentDTO.getId();
-        Comment deletedComment = modelMapper.map(commentDTO, Comment.class);
+        Comment deletedComment = dtoMapper.toComment(commentDTO);
         deletedComment.setDeleted(true);
         given(commentRepository.findByIdAndDeleted(commentID, false)).willReturn(comment);
         given(commentRepository.saveAndFlush(any(Comment.class))).willReturn(deletedComment);
@@ -219,7 +234,7 @@ public class CommentServiceImplTest {
     void softDeleteCommentAdminSuccess() {
         // Given
         String commentID = commentDTO.getId();
-        Comment deletedComment = modelMapper.map(commentDTO, Comment.class);
+        Comment deletedComment = dtoMapper.toComment(commentDTO);
         deletedComment.setContent("Deleted by admin");
         given(commentRepository.findById(commentID)).willReturn(Optional.of(comment));
         given(commentRepository.saveAndFlush(any(Comment.class))).willReturn(deletedComment);
@@ -238,7 +253,7 @@ public class CommentServiceImplTest {
     void deleteCommentOwnerAdminSuccess() {
         // Given
         String commentID = commentDTO.getId();
-        Comment deletedComment = modelMapper.map(commentDTO, Comment.class);
+        Comment deletedComment = dtoMapper.toComment(commentDTO);
         deletedComment.setDeleted(true);
         given(commentRepository.findById(commentID)).willReturn(Optional.of(deletedComment));
 
@@ -257,7 +272,7 @@ public class CommentServiceImplTest {
     void deleteCommentAdminSuccess() {
         // Given
         String commentID = commentDTO.getId();
-        Comment deletedComment = modelMapper.map(commentDTO, Comment.class);
+        Comment deletedComment = dtoMapper.toComment(commentDTO);
         deletedComment.setContent("Deleted by admin");
         given(commentRepository.findById(commentID)).willReturn(Optional.of(deletedComment));
 
@@ -307,16 +322,17 @@ public class CommentServiceImplTest {
     @Order(12)
     void findAllComment() {
         // Given
-        Page<Comment> page = new PageImpl<>(comments);
-        given(commentRepository.findAll(pageable)).willReturn(page);
+        Slice<Comment> page = new SliceImpl<>(comments, pageable, true);
+        given(commentRepository.findAllBy(pageable)).willReturn(page);
 
         // when
-        List<CommentDTO> actual = commentService.findAllComment(pageable);
+        MappedPage<CommentDTO> actual = commentService.findAllComment(pageable);
 
         // then
-        assertEquals(commentDTOS.get(0).getId(), actual.get(0).getId());
-        assertEquals(commentDTOS.get(0).getClass(), actual.get(0).getClass());
-        assertEquals(commentDTOS.size(), actual.size());
+        assertEquals(commentDTOS.get(0).getId(), actual.getContent().get(0).getId());
+        assertEquals(commentDTOS.get(0).getClass(), actual.getContent().get(0).getClass());
+        assertEquals(commentDTOS.size(), actual.getContent().size());
+        assertTrue(actual.getHasNext());
     }
 
     @Test
@@ -327,7 +343,7 @@ public class CommentServiceImplTest {
         given(commentRepository.findByDeleted(false, pageable)).willReturn(comments);
 
         // when
-        List<CommentDTO> actual = commentService.findCommentByDeleted(pageable);
+        List<CommentDTO> actual = commentService.findCommentByDeleted(pageable).getContent();
 
         // then
         assertEquals(commentDTOS.get(0).getId(), actual.get(0).getId());
@@ -345,7 +361,7 @@ public class CommentServiceImplTest {
         given(commentRepository.findByOwner(any(User.class), any())).willReturn(comments);
 
         // when
-        List<CommentDTO> actual = commentService.findCommentByOwner(username, pageable);
+        List<CommentDTO> actual = commentService.findCommentByOwner(username, pageable).getContent();
 
         // then
         assertEquals(commentDTOS.get(0).getId(), actual.get(0).getId());
@@ -379,7 +395,7 @@ public class CommentServiceImplTest {
         given(commentRepository.findByOwnerAndDeleted(any(User.class), eq(false), any())).willReturn(comments);
 
         // when
-        List<CommentDTO> actual = commentService.findCommentByOwnerAndDeleted(username, pageable);
+        List<CommentDTO> actual = commentService.findCommentByOwnerAndDeleted(username, pageable).getContent();
 
         // then
         assertEquals(commentDTOS.get(0).getId(), actual.get(0).getId());
@@ -409,11 +425,13 @@ public class CommentServiceImplTest {
     void findCommentByPostSuccess() {
         // Given
         String postID = postDTO.getId();
-        given(postService.findPostByID(postID)).willReturn(postDTO);
+        given(postService.existsPostByID(postID)).willReturn(true);
+        Post post = dtoMapper.toPost(postDTO);
+        given(postService.getPostReference(postID)).willReturn(post);
         given(commentRepository.findByPost(any(Post.class), any())).willReturn(comments);
 
         // when
-        List<CommentDTO> actual = commentService.findCommentByPost(postID, pageable);
+        List<CommentDTO> actual = commentService.findCommentByPost(postID, pageable).getContent();
 
         // then
         assertEquals(commentDTOS.get(0).getId(), actual.get(0).getId());
@@ -427,7 +445,7 @@ public class CommentServiceImplTest {
     void findCommentByPostThrowPostNotFound() {
         // Given
         String postID = postDTO.getId();
-        given(postService.findPostByID(postID)).willReturn(null);
+        given(postService.existsPostByID(postID)).willReturn(false);
 
         // when
         MyException exception = assertThrows(MyException.class, () -> commentService.findCommentByPost(postID, pageable));
@@ -443,11 +461,13 @@ public class CommentServiceImplTest {
     void findCommentByPostAndDeletedSuccess() {
         // Given
         String postID = postDTO.getId();
-        given(postService.findPostByID(postID)).willReturn(postDTO);
+        given(postService.existsPostByID(postID)).willReturn(true);
+        Post post = dtoMapper.toPost(postDTO);
+        given(postService.getPostReference(postID)).willReturn(post);
         given(commentRepository.findByPostAndDeleted(any(Post.class), eq(false), any())).willReturn(comments);
 
         // when
-        List<CommentDTO> actual = commentService.findCommentByPostAndDeleted(postID, pageable);
+        List<CommentDTO> actual = commentService.findCommentByPostAndDeleted(postID, pageable).getContent();
 
         // then
         assertEquals(commentDTOS.get(0).getId(), actual.get(0).getId());
@@ -461,7 +481,7 @@ public class CommentServiceImplTest {
     void findCommentByPostAndDeletedPostNotFound() {
         // Given
         String postID = postDTO.getId();
-        given(postService.findPostByID(postID)).willReturn(null);
+        given(postService.existsPostByID(postID)).willReturn(false);
 
         // when
         MyException exception = assertThrows(MyException.class, () -> commentService.findCommentByPostAndDeleted(postID, pageable));
@@ -479,7 +499,7 @@ public class CommentServiceImplTest {
         given(commentRepository.findByCreateDateBetween(any(), any(), any())).willReturn(comments);
 
         // when
-        List<CommentDTO> actual = commentService.findCommentByCreateDate(LocalDate.now(), pageable);
+        List<CommentDTO> actual = commentService.findCommentByCreateDate(LocalDate.now(), pageable).getContent();
 
         // then
         assertEquals(commentDTOS.get(0).getId(), actual.get(0).getId());
@@ -495,11 +515,69 @@ public class CommentServiceImplTest {
         given(commentRepository.findByDeletedAndCreateDateBetween(eq(false), any(), any(), any())).willReturn(comments);
 
         // when
-        List<CommentDTO> actual = commentService.findCommentByCreateDateAndDeleted(LocalDate.now(), pageable);
+        List<CommentDTO> actual = commentService.findCommentByCreateDateAndDeleted(LocalDate.now(), pageable).getContent();
 
         // then
         assertEquals(commentDTOS.get(0).getId(), actual.get(0).getId());
         assertEquals(commentDTOS.get(0).getContent(), actual.get(0).getContent());
         assertEquals(commentDTOS.size(), actual.size());
     }
+
+    @Test
+    @DisplayName("Create comments in batch with result of each comment")
+    @Order(22)
+    void createCommentsBatch() {
+        // Given
+        ReflectionTestUtils.setField(commentService, "batchMaxSize", 10);
+        ReflectionTestUtils.setField(commentService, "validator",
+                Validation.buildDefaultValidatorFactory().getValidator());
+        String username = userDTO.getUsername();
+        given(userService.findUserByUsername(username)).willReturn(userDTO);
+        Post post = dtoMapper.toPost(postDTO);
+        given(postService.getPosts(any())).willReturn(List.of(post));
+        PostDTO unknownPost = new PostDTO();
+        unknownPost.setId("Unknown post ID");
+        List<CommentDTO> batch = List.of(batchComment("First", postDTO), batchComment("", postDTO),
+                batchComment("Third", unknownPost), batchComment("Fourth", postDTO));
+
+        // when
+        List<ResponseObject> actual = commentService.createComments(batch, username);
+
+        // then
+        assertEquals(4, actual.size());
+        assertEquals("200", actual.get(0).getCode());
+        assertEquals("406", actual.get(1).getCode());
+        assertEquals("400", actual.get(2).getCode());
+        assertEquals("Post not found", actual.get(2).getMessage());
+        assertEquals("200", actual.get(3).getCode());
+        assertEquals("Fourth", ((CommentDTO) actual.get(3).getData()).getContent());
+        // Only valid comments are inserted, all in one call
+        ArgumentCaptor<List<Comment>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(commentRepository).persistAll(inserted.capture());
+        assertEquals(2, inserted.getValue().size());
+        verify(postService, times(1)).getPosts(any());
+    }
+
+    @Test
+    @DisplayName("Create comments in batch throw exception batch too large")
+    @Order(23)
+    void createCommentsBatchTooLarge() {
+        // Given
+        ReflectionTestUtils.setField(commentService, "batchMaxSize", 1);
+        List<CommentDTO> batch = List.of(batchComment("First", postDTO), batchComment("Second", postDTO));
+
+        // when
+        MyException exception = assertThrows(MyException.class, () -> commentService.createComments(batch, userDTO.getUsername()));
+
+        // then
+        assertEquals("406", exception.getCode());
+        verify(commentRepository, never()).persistAll(any());
+    }
+
+    private CommentDTO batchComment(String content, PostDTO post) {
+        CommentDTO batchComment = new CommentDTO();
+        batchComment.setContent(content);
+        batchComment.setPost(post);
+        return batchComment;
+    }
 }
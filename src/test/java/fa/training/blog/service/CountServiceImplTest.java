@@ -0,0 +1,75 @@
+package fa.training.blog.service;
+
+import fa.training.blog.repository.CommentRepository;
+import fa.training.blog.repository.PostRepository;
+import fa.training.blog.repository.UserRepository;
+import fa.training.blog.service.impl.CountServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class CountServiceImplTest {
+    private CountServiceImpl countService;
+    @Mock
+    private PostRepository postRepository;
+    @Mock
+    private CommentRepository commentRepository;
+    @Mock
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        // Constructor takes time to live of counts, so create service by hand and set repositories
+        countService = new CountServiceImpl(Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(countService, "postRepository", postRepository);
+        ReflectionTestUtils.setField(countService, "commentRepository", commentRepository);
+        ReflectionTestUtils.setField(countService, "userRepository", userRepository);
+    }
+
+    @Test
+    @DisplayName("Count post is cached")
+    @Order(1)
+    void countPostCached() {
+        // Given
+        given(postRepository.count()).willReturn(5L);
+
+        // When
+        long first = countService.countPost();
+        long second = countService.countPost();
+
+        // Then
+        assertEquals(5, first);
+        assertEquals(5, second);
+        verify(postRepository, times(1)).count();
+    }
+
+    @Test
+    @DisplayName("Count comment with and without soft-deleted")
+    @Order(2)
+    void countComment() {
+        // Given
+        given(commentRepository.count()).willReturn(7L);
+        given(commentRepository.countByDeleted(false)).willReturn(4L);
+
+        // When
+        long all = countService.countComment(true);
+        long notDeleted = countService.countComment(false);
+
+        // Then
+        assertEquals(7, all);
+        assertEquals(4, notDeleted);
+    }
+}
@@ -0,0 +1,129 @@
+package fa.training.blog.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fa.training.blog.entity.Comment;
+import fa.training.blog.entity.Post;
+import fa.training.blog.entity.User;
+import fa.training.blog.mapper.DtoMapper;
+import fa.training.blog.repository.CommentRepository;
+import fa.training.blog.repository.PostRepository;
+import fa.training.blog.service.impl.ExportServiceImpl;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+// Export reads through a database cursor, so check it on a real (in-memory) database
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:blog;MODE=MySQL;NON_KEYWORDS=USER")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class ExportServiceImplTest {
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+
+    private final ViewCountService viewCountService = mock(ViewCountService.class);
+    private ExportServiceImpl exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ExportServiceImpl();
+        ReflectionTestUtils.setField(exportService, "postRepository", postRepository);
+        ReflectionTestUtils.setField(exportService, "commentRepository", commentRepository);
+        ReflectionTestUtils.setField(exportService, "viewCountService", viewCountService);
+        ReflectionTestUtils.setField(exportService, "dtoMapper", new DtoMapper());
+        ReflectionTestUtils.setField(exportService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(exportService, "entityManager", entityManager.getEntityManager());
+
+        LocalDateTime now = LocalDateTime.of(2022, 8, 1, 10, 0);
+        User user = entityManager.persist(new User("user", "password", "user@mail.com", "First", "Last", "ROLE_USER"));
+        Post post = persistPost("post-1", now, user);
+        persistPost("post-2", now.plusHours(1), user);
+        persistComment("comment-1", false, post, user);
+        persistComment("comment-2", true, post, user);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Export every post as newline-delimited JSON")
+    @Order(1)
+    void exportPosts() {
+        // Given
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        given(viewCountService.getPendingViews("post-1")).willReturn(3L);
+
+        // When
+        long written = exportService.exportPosts(output);
+
+        // Then
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, written);
+        assertEquals(2, lines.length);
+        String post = Arrays.stream(lines).filter(line -> line.contains("\"id\":\"post-1\"")).findFirst().orElseThrow();
+        // View includes views not written to database yet
+        assertTrue(post.contains("\"view\":3"));
+        assertTrue(post.contains("\"username\":\"user\""));
+        // Posts and owners are detached once written
+        assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    @DisplayName("Export comments of a post, with or without soft-deleted")
+    @Order(2)
+    void exportComments() {
+        // Given
+        ByteArrayOutputStream notDeleted = new ByteArrayOutputStream();
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+
+        // When
+        long notDeletedWritten = exportService.exportComments(null, "post-1", false, notDeleted);
+        long allWritten = exportService.exportComments(null, "post-1", true, all);
+
+        // Then
+        assertEquals(1, notDeletedWritten);
+        assertTrue(notDeleted.toString(StandardCharsets.UTF_8).contains("\"id\":\"comment-1\""));
+        assertEquals(2, allWritten);
+        assertEquals(2, all.toString(StandardCharsets.UTF_8).split("\n").length);
+    }
+
+    private Post persistPost(String id, LocalDateTime createDate, User owner) {
+        Post post = new Post();
+        post.setId(id);
+        post.setTitle("Title");
+        post.setContent("Content");
+        post.setCreateDate(createDate);
+        post.setModifyDate(createDate);
+        post.setOwner(owner);
+        return entityManager.persist(post);
+    }
+
+    private void persistComment(String id, boolean deleted, Post post, User owner) {
+        Comment comment = new Comment();
+        comment.setId(id);
+        comment.setContent("Comment");
+        comment.setDeleted(deleted);
+        comment.setCreateDate(LocalDateTime.of(2022, 8, 1, 12, 0));
+        comment.setOwner(owner);
+        comment.setPost(post);
+        entityManager.persist(comment);
+    }
+}
@@ -0,0 +1,133 @@
+package fa.training.blog.service;
+
+import fa.training.blog.entity.Comment;
+import fa.training.blog.entity.Post;
+import fa.training.blog.entity.User;
+import fa.training.blog.service.impl.IdMigrationServiceImpl;
+import fa.training.blog.utils.SnowflakeIdGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+// Migration runs plain SQL, so check it on a real (in-memory) database
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:blog;MODE=MySQL;NON_KEYWORDS=USER")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class IdMigrationServiceImplTest {
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final PostSearchService postSearchService = mock(PostSearchService.class);
+    private IdMigrationServiceImpl idMigrationService;
+    private JdbcTemplate jdbcTemplate;
+    private String olderPostID;
+    private String newerPostID;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        idMigrationService = new IdMigrationServiceImpl();
+        ReflectionTestUtils.setField(idMigrationService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(idMigrationService, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(idMigrationService, "entityManagerFactory", entityManagerFactory);
+        ReflectionTestUtils.setField(idMigrationService, "viewCountService", mock(ViewCountService.class));
+        ReflectionTestUtils.setField(idMigrationService, "postSearchService", postSearchService);
+        ReflectionTestUtils.setField(idMigrationService, "postResponseCache", mock(PostResponseCache.class));
+
+        LocalDateTime now = LocalDateTime.of(2022, 8, 1, 10, 0);
+        User user = entityManager.persist(new User("user", "password", "user@mail.com", "First", "Last", "ROLE_USER"));
+        // Newer post is created first, so new IDs must follow create date and not insert order
+        newerPostID = persistPost(UUID.randomUUID().toString(), now, user).getId();
+        Post olderPost = persistPost(UUID.randomUUID().toString(), now.minusDays(1), user);
+        olderPostID = olderPost.getId();
+        persistPost(SnowflakeIdGenerator.compose(System.currentTimeMillis(), 0, 0), now, user);
+
+        Comment comment = new Comment();
+        comment.setId(UUID.randomUUID().toString());
+        comment.setContent("Comment");
+        comment.setCreateDate(now);
+        comment.setOwner(user);
+        comment.setPost(olderPost);
+        entityManager.persist(comment);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Migrate legacy IDs of posts and comments")
+    @Order(1)
+    void migrateLegacyIds() {
+        // When
+        int migrated = idMigrationService.migrateLegacyIds();
+
+        // Then
+        assertEquals(3, migrated);
+        List<String> postIDs = jdbcTemplate.queryForList("SELECT id FROM post ORDER BY create_date, id", String.class);
+        assertEquals(3, postIDs.size());
+        postIDs.forEach(id -> assertEquals(SnowflakeIdGenerator.LENGTH, id.length()));
+        assertTrue(postIDs.get(0).compareTo(postIDs.get(1)) < 0);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM post WHERE id IN (?, ?)",
+                Integer.class, olderPostID, newerPostID));
+        // Comment follows its post and gets a new ID too
+        String commentPostID = jdbcTemplate.queryForObject("SELECT post_id FROM comment", String.class);
+        assertEquals(postIDs.get(0), commentPostID);
+        String commentID = jdbcTemplate.queryForObject("SELECT id FROM comment", String.class);
+        assertEquals(SnowflakeIdGenerator.LENGTH, commentID.length());
+        verify(postSearchService).rebuild();
+    }
+
+    @Test
+    @DisplayName("Migrate legacy IDs twice")
+    @Order(2)
+    void migrateLegacyIdsTwice() {
+        // Given
+        idMigrationService.migrateLegacyIds();
+
+        // When
+        int migrated = idMigrationService.migrateLegacyIds();
+
+        // Then
+        assertEquals(0, migrated);
+    }
+
+    private Post persistPost(String id, LocalDateTime createDate, User owner) {
+        Post post = new Post();
+        post.setId(id);
+        post.setTitle("Title");
+        post.setContent("Content");
+        post.setCreateDate(createDate);
+        post.setModifyDate(createDate);
+        post.setOwner(owner);
+        post = entityManager.persist(post);
+        entityManager.flush();
+        // Auditing sets create date to now on persist, set the one of the test behind it
+        jdbcTemplate.update("UPDATE post SET create_date = ? WHERE id = ?", Timestamp.valueOf(createDate), id);
+        return post;
+    }
+}
@@ -0,0 +1,141 @@
+package fa.training.blog.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fa.training.blog.dto.PostDTO;
+import fa.training.blog.dto.UserDTO;
+import fa.training.blog.service.impl.PostResponseCacheImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class PostResponseCacheImplTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private PostResponseCacheImpl postResponseCache;
+    private PostDTO post;
+
+    @BeforeEach
+    void setUp() {
+        // Constructor takes size and time to live, so create cache by hand and set object mapper
+        postResponseCache = new PostResponseCacheImpl(DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(postResponseCache, "objectMapper", objectMapper);
+
+        UserDTO owner = new UserDTO();
+        owner.setUsername("user");
+        post = new PostDTO();
+        post.setId("Post ID");
+        post.setTitle("Title of post");
+        // Content looking like the view field must not be taken for it
+        post.setContent("Content with \"view\":-2147483648 in it");
+        post.setCreateDate(LocalDateTime.of(2022, 8, 1, 10, 0));
+        post.setView(10);
+        post.setOwner(owner);
+    }
+
+    @Test
+    @DisplayName("Put post response keeps post as it is")
+    @Order(1)
+    void putPostResponse() throws Exception {
+        // When
+        JsonNode actual = objectMapper.readTree(postResponseCache.put(post, 2, postResponseCache.generation(post.getId())));
+
+        // Then
+        assertEquals("200", actual.get("code").asText());
+        assertEquals(10, actual.get("data").get("view").asInt());
+        assertEquals(post.getContent(), actual.get("data").get("content").asText());
+        assertEquals(10, post.getView());
+    }
+
+    @Test
+    @DisplayName("Get cached post response patches view")
+    @Order(2)
+    void getPostResponsePatchView() throws Exception {
+        // Given
+        postResponseCache.put(post, 2, postResponseCache.generation(post.getId()));
+
+        // When
+        JsonNode actual = objectMapper.readTree(postResponseCache.get(post.getId(), 7));
+
+        // Then
+        assertEquals(15, actual.get("data").get("view").asInt());
+        assertEquals(post.getTitle(), actual.get("data").get("title").asText());
+    }
+
+    @Test
+    @DisplayName("Get post response after invalidate")
+    @Order(3)
+    void getPostResponseInvalidated() {
+        // Given
+        postResponseCache.put(post, 2, postResponseCache.generation(post.getId()));
+
+        // When
+        postResponseCache.invalidate(post.getId());
+
+        // Then
+        assertNull(postResponseCache.get(post.getId(), 2));
+    }
+
+    @Test
+    @DisplayName("Get cached post response after rebase keeps view")
+    @Order(4)
+    void getPostResponseRebased() throws Exception {
+        // Given
+        postResponseCache.put(post, 2, postResponseCache.generation(post.getId()));
+
+        // When
+        // Counter of post had 7 views when removed, new counter has 1 view
+        postResponseCache.rebase(post.getId(), 7);
+        JsonNode actual = objectMapper.readTree(postResponseCache.get(post.getId(), 1));
+
+        // Then
+        assertEquals(16, actual.get("data").get("view").asInt());
+    }
+
+    @Test
+    @DisplayName("Get modify date of cached post")
+    @Order(5)
+    void getModifyDate() {
+        // Given
+        post.setModifyDate(LocalDateTime.of(2022, 8, 2, 10, 0));
+        postResponseCache.put(post, 2, postResponseCache.generation(post.getId()));
+
+        // When
+        LocalDateTime actual = postResponseCache.getModifyDate(post.getId());
+
+        // Then
+        assertEquals(post.getModifyDate(), actual);
+        assertNull(postResponseCache.getModifyDate("Other post ID"));
+    }
+
+    @Test
+    @DisplayName("Put post read before invalidate is not cached")
+    @Order(6)
+    void putPostResponseInvalidatedMeanwhile() throws Exception {
+        // Given
+        // Cache miss: generation is taken, then post is read from database
+        long generation = postResponseCache.generation(post.getId());
+        // Post is edited and invalidated before the stale post read is put
+        postResponseCache.invalidate(post.getId());
+
+        // When
+        JsonNode actual = objectMapper.readTree(postResponseCache.put(post, 2, generation));
+
+        // Then
+        // Stale post is still the response of its own request, but not cached
+        assertEquals(10, actual.get("data").get("view").asInt());
+        assertNull(postResponseCache.get(post.getId(), 2));
+        // Next miss reads the edited post and caches it
+        postResponseCache.put(post, 2, postResponseCache.generation(post.getId()));
+        assertNotNull(postResponseCache.get(post.getId(), 2));
+    }
+}
@@ -0,0 +1,178 @@
+package fa.training.blog.service;
+
+import fa.training.blog.dto.PostDTO;
+import fa.training.blog.entity.Post;
+import fa.training.blog.repository.PostRepository;
+import fa.training.blog.service.impl.PostSearchServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class PostSearchServiceImplTest {
+    @TempDir
+    Path indexDir;
+    @Mock
+    private PostRepository postRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private EntityManager entityManager;
+
+    private PostSearchServiceImpl postSearchService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Index is kept in a temporary directory for each test
+        postSearchService = new PostSearchServiceImpl(indexDir);
+        ReflectionTestUtils.setField(postSearchService, "postRepository", postRepository);
+        ReflectionTestUtils.setField(postSearchService, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(postSearchService, "entityManager", entityManager);
+        postSearchService.open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        postSearchService.close();
+    }
+
+    @Test
+    @DisplayName("Search rank title match first")
+    @Order(1)
+    void searchRankTitleFirst() {
+        // Given
+        postSearchService.index(post("1", "Cooking at home", "Some recipes for spring"));
+        postSearchService.index(post("2", "Spring Boot tutorial", "Build a REST API"));
+        postSearchService.index(post("3", "Travel", "Nothing related"));
+
+        // When
+        List<String> actual = postSearchService.search("spring", 0, 10);
+
+        // Then
+        assertEquals(List.of("2", "1"), actual);
+    }
+
+    @Test
+    @DisplayName("Search match prefix of words")
+    @Order(2)
+    void searchPrefix() {
+        // Given
+        postSearchService.index(post("1", "Spring Boot tutorial", "Build a REST API"));
+        postSearchService.index(post("2", "Travel", "Nothing related"));
+
+        // When
+        List<String> actual = postSearchService.search("tuto", 0, 10);
+
+        // Then
+        assertEquals(List.of("1"), actual);
+    }
+
+    @Test
+    @DisplayName("Edited and removed posts are updated in index")
+    @Order(3)
+    void indexUpdateAndRemove() {
+        // Given
+        postSearchService.index(post("1", "Spring Boot tutorial", "Build a REST API"));
+        postSearchService.index(post("2", "Spring Data", "Repositories"));
+
+        // When
+        postSearchService.index(post("1", "Hibernate tutorial", "Build a REST API"));
+        postSearchService.remove("2");
+
+        // Then
+        assertTrue(postSearchService.search("spring", 0, 10).isEmpty());
+        assertEquals(List.of("1"), postSearchService.search("hibernate", 0, 10));
+    }
+
+    @Test
+    @DisplayName("Rebuild index all posts in database")
+    @Order(4)
+    void rebuild() {
+        // Given
+        Post post = new Post();
+        post.setId("1");
+        post.setTitle("Spring Boot tutorial");
+        post.setContent("Build a REST API");
+        given(postRepository.findAllBy(any())).willReturn(new SliceImpl<>(List.of(post)));
+
+        // When
+        int actual = postSearchService.rebuild();
+
+        // Then
+        assertEquals(1, actual);
+        assertEquals(List.of("1"), postSearchService.search("api", 0, 10));
+        verify(entityManager).clear();
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("Rebuild replace posts already in index")
+    @Order(5)
+    void rebuildReplaceIndexedPost() {
+        // Given
+        postSearchService.index(post("1", "Spring Boot tutorial", "Build a REST API"));
+        postSearchService.index(post("2", "Spring Data", "Repositories"));
+        Post post = new Post();
+        post.setId("1");
+        post.setTitle("Spring Boot tutorial");
+        post.setContent("Build a REST API");
+        given(postRepository.findAllBy(any())).willReturn(new SliceImpl<>(List.of(post, post)));
+
+        // When
+        postSearchService.rebuild();
+
+        // Then
+        assertEquals(List.of("1"), postSearchService.search("spring", 0, 10));
+    }
+
+    @Test
+    @DisplayName("Failed rebuild keep previous index")
+    @Order(6)
+    void rebuildFailKeepIndex() {
+        // Given
+        postSearchService.index(post("1", "Spring Boot tutorial", "Build a REST API"));
+        given(postRepository.findAllBy(any())).willThrow(new QueryTimeoutException("Timeout"));
+
+        // When
+        assertThrows(QueryTimeoutException.class, () -> postSearchService.rebuild());
+
+        // Then
+        assertEquals(List.of("1"), postSearchService.search("spring", 0, 10));
+        verify(transactionManager).rollback(any());
+        // Writer is opened again after rollback
+        postSearchService.index(post("2", "Spring Data", "Repositories"));
+        assertEquals(List.of("2"), postSearchService.search("repositories", 0, 10));
+    }
+
+    private PostDTO post(String id, String title, String content) {
+        PostDTO post = new PostDTO();
+        post.setId(id);
+        post.setTitle(title);
+        post.setContent(content);
+        return post;
+    }
+}
@@ -5,29 +5,45 @@ import fa.training.blog.dto.UserDTO;
 import fa.training.blog.entity.Post;
 import fa.training.blog.entity.User;
 import fa.training.blog.exception.MyException;
+import fa.training.blog.mapper.DtoMapper;
+import fa.training.blog.model.MappedPage;
 import fa.training.blog.repository.PostRepository;
+import fa.training.blog.repository.projection.PostSummary;
 import fa.training.blog.service.impl.PostServiceImpl;
+import fa.training.blog.utils.FeedCursor;
+import fa.training.blog.utils.IdGenerator;
+import fa.training.blog.utils.UuidIdGenerator;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 public class PostServiceImplTest {
@@ -37,8 +53,16 @@ public class PostServiceImplTest {
     private PostRepository postRepository;
     @Mock
     private UserService userService;
+    @Mock
+    private ViewCountService viewCountService;
+    @Mock
+    private PostSearchService postSearchService;
+    @Mock
+    private PostResponseCache postResponseCache;
+    @Spy
+    private DtoMapper dtoMapper;
     @Spy
-    private ModelMapper modelMapper;
+    private IdGenerator idGenerator = new UuidIdGenerator();
 
     private static PostDTO postDTO;
     private static PostDTO postDTOCreate;
@@ -74,7 +98,7 @@ public class PostServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        post = modelMapper.map(postDTO, Post.class);
+        post = dtoMapper.toPost(postDTO);
         posts = new ArrayList<>();
         posts.add(post);
     }
@@ -124,7 +148,7 @@ public class PostServiceImplTest {
     void editPostSuccess() {
         // Given
         given(postRepository.findById(postDTO.getId())).willReturn(Optional.of(post));
-        Post editedPost = modelMapper.map(postDTO, Post.class);
+        Post editedPost = dtoMapper.toPost(postDTO);
         editedPost.setTitle("Edited title of post");
         editedPost.setContent("Edited content of post");
         given(postRepository.saveAndFlush(any(Post.class))).willReturn(editedPost);
@@ -191,16 +215,18 @@ public class PostServiceImplTest {
     @Order(7)
     void findAllPost() {
         // Given
-        Page<Post> page = new PageImpl<>(posts);
-        given(postRepository.findAll(pageable)).willReturn(page);
+        Slice<Post> page = new SliceImpl<>(posts, pageable, true);
+        given(postRepository.findAllBy(pageable)).willReturn(page);
 
         // When
-        List<PostDTO> actual = postService.findAllPost(pageable);
+        MappedPage<PostDTO> actual = postService.findAllPost(pageable);
 
         // Then
-        assertEquals(postDTOS.size(), actual.size());
-        assertEquals(postDTOS.get(0).getId(), actual.get(0).getId());
-        assertEquals(postDTOS.get(0).getTitle(), actual.get(0).getTitle());
+        assertEquals(List.of(postDTOS.get(0).getId()), actual.getIds());
+        assertEquals(postDTOS.size(), actual.getContent().size());
+        assertEquals(postDTOS.get(0).getId(), actual.getContent().get(0).getId());
+        assertEquals(postDTOS.get(0).getTitle(), actual.getContent().get(0).getTitle());
+        assertTrue(actual.getHasNext());
     }
 
     @Test
@@ -213,7 +239,7 @@ public class PostServiceImplTest {
         given(postRepository.findByOwner(any(User.class), any())).willReturn(posts);
 
         // When
-        List<PostDTO> actual = postService.findPostByOwner(username, pageable);
+        List<PostDTO> actual = postService.findPostByOwner(username, pageable).getContent();
 
         // Then
         assertEquals(postDTOS.size(), actual.size());
@@ -237,6 +263,41 @@ public class PostServiceImplTest {
         assertEquals("Username not found", exception.getMessage());
     }
 
+    @Test
+    @DisplayName("Find post by ID count view in memory")
+    @Order(10)
+    void findPostByIdCountView() {
+        // Given
+        String postID = postDTO.getId();
+        given(postRepository.findById(postID)).willReturn(Optional.of(post));
+        given(viewCountService.getPendingViews(postID)).willReturn(3L);
+
+        // When
+        PostDTO actual = postService.findPostByID(postID);
+
+        // Then
+        assertEquals(postDTO.getId(), actual.getId());
+        assertEquals(postDTO.getView() + 3, actual.getView());
+        verify(viewCountService).recordView(postID);
+        verify(postRepository, never()).saveAndFlush(any(Post.class));
+    }
+
+    @Test
+    @DisplayName("Exists post by ID does not count view")
+    @Order(10)
+    void existsPostById() {
+        // Given
+        String postID = postDTO.getId();
+        given(postRepository.existsById(postID)).willReturn(true);
+
+        // When
+        boolean actual = postService.existsPostByID(postID);
+
+        // Then
+        assertTrue(actual);
+        verify(viewCountService, never()).recordView(postID);
+    }
+
     @Test
     @DisplayName("Find post by create date")
     @Order(10)
@@ -245,7 +306,7 @@ public class PostServiceImplTest {
         given(postRepository.findByCreateDateBetween(any(), any(), any())).willReturn(posts);
 
         // When
-        List<PostDTO> actual = postService.findPostByCreateDate(LocalDate.now(), pageable);
+        List<PostDTO> actual = postService.findPostByCreateDate(LocalDate.now(), pageable).getContent();
 
         // Then
         assertEquals(postDTOS.size(), actual.size());
@@ -262,11 +323,216 @@ public class PostServiceImplTest {
         given(postRepository.findByTitleIgnoreCaseContains(title, pageable)).willReturn(posts);
 
         // When
-        List<PostDTO> actual = postService.findPostByTitle(title, pageable);
+        List<PostDTO> actual = postService.findPostByTitle(title, pageable).getContent();
 
         // Then
         assertEquals(postDTOS.size(), actual.size());
         assertEquals(postDTOS.get(0).getId(), actual.get(0).getId());
         assertEquals(postDTOS.get(0).getTitle(), actual.get(0).getTitle());
     }
+
+    @Test
+    @DisplayName("Find all post summary")
+    @Order(12)
+    void findAllPostSummary() {
+        // Given
+        PostSummary summary = new SpelAwareProxyProjectionFactory().createProjection(PostSummary.class, Map.of(
+                "id", postDTO.getId(), "title", postDTO.getTitle(), "view", 5,
+                "ownerUsername", userDTO.getUsername(), "ownerFirstName", userDTO.getFirstName(),
+                "ownerLastName", userDTO.getLastName()));
+        given(postRepository.findAllSummary(pageable)).willReturn(List.of(summary));
+
+        // When
+        List<PostDTO> actual = postService.findAllPostSummary(pageable).getContent();
+
+        // Then
+        assertEquals(1, actual.size());
+        assertEquals(postDTO.getId(), actual.get(0).getId());
+        assertEquals(postDTO.getTitle(), actual.get(0).getTitle());
+        assertEquals(5, actual.get(0).getView());
+        assertEquals(userDTO.getUsername(), actual.get(0).getOwner().getUsername());
+        assertNull(actual.get(0).getContent());
+    }
+
+    @Test
+    @DisplayName("Find post summary by owner username not found")
+    @Order(13)
+    void findPostSummaryByOwnerUsernameNotFound() {
+        // Given
+        String username = userDTO.getUsername();
+        given(userService.findUserByUsername(username)).willReturn(null);
+
+        // When
+        MyException exception = assertThrows(MyException.class, () -> postService.findPostSummaryByOwner(username, pageable));
+
+        // Then
+        assertEquals("400", exception.getCode());
+        assertEquals("Username not found", exception.getMessage());
+        verify(postRepository, never()).findSummaryByOwner(any(), any());
+    }
+
+    @Test
+    @DisplayName("Find post feed with next page")
+    @Order(14)
+    void findPostFeedHasNextPage() {
+        // Given
+        LocalDateTime createDate = LocalDateTime.of(2022, 8, 1, 10, 0);
+        post.setCreateDate(createDate);
+        Post olderPost = dtoMapper.toPost(postDTO);
+        olderPost.setId("Older post ID");
+        olderPost.setCreateDate(createDate.minusDays(1));
+        posts.add(olderPost);
+        given(postRepository.findFeed(eq(FeedCursor.FIRST.getCreateDate()), eq(FeedCursor.FIRST.getId()), any()))
+                .willReturn(posts);
+
+        // When
+        MappedPage<PostDTO> actual = postService.findPostFeed("", 1);
+
+        // Then
+        assertEquals(List.of(postDTO.getId()), actual.getIds());
+        assertEquals(1, actual.getContent().size());
+        assertEquals(postDTO.getId(), actual.getContent().get(0).getId());
+        FeedCursor next = FeedCursor.decode(actual.getNextCursor());
+        assertEquals(createDate, next.getCreateDate());
+        assertEquals(postDTO.getId(), next.getId());
+    }
+
+    @Test
+    @DisplayName("Find post feed last page")
+    @Order(15)
+    void findPostFeedLastPage() {
+        // Given
+        post.setCreateDate(LocalDateTime.of(2022, 8, 1, 10, 0));
+        String cursor = new FeedCursor(LocalDateTime.of(2022, 8, 2, 10, 0), "Newer post ID").encode();
+        given(postRepository.findFeed(eq(LocalDateTime.of(2022, 8, 2, 10, 0)), eq("Newer post ID"), any()))
+                .willReturn(posts);
+
+        // When
+        MappedPage<PostDTO> actual = postService.findPostFeed(cursor, 10);
+
+        // Then
+        assertEquals(1, actual.getContent().size());
+        assertNull(actual.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Find post feed invalid cursor")
+    @Order(16)
+    void findPostFeedInvalidCursor() {
+        // When
+        MyException exception = assertThrows(MyException.class, () -> postService.findPostFeed("not a cursor", 10));
+
+        // Then
+        assertEquals("406", exception.getCode());
+        assertEquals("Invalid cursor", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Search post keep order of search rank")
+    @Order(17)
+    void searchPost() {
+        // Given
+        Post betterPost = dtoMapper.toPost(postDTO);
+        betterPost.setId("Better post ID");
+        posts.add(betterPost);
+        given(postSearchService.search("title", 0, 10)).willReturn(List.of("Better post ID", "Post ID"));
+        given(postRepository.findAllById(List.of("Better post ID", "Post ID"))).willReturn(posts);
+
+        // When
+        List<PostDTO> actual = postService.searchPost("title", pageable).getContent();
+
+        // Then
+        assertEquals(2, actual.size());
+        assertEquals("Better post ID", actual.get(0).getId());
+        assertEquals(postDTO.getId(), actual.get(1).getId());
+    }
+
+    @Test
+    @DisplayName("Delete post remove it from search index")
+    @Order(18)
+    void deletePostRemoveFromIndex() {
+        // Given
+        String postID = postDTO.getId();
+        given(postRepository.findById(postID)).willReturn(Optional.of(post));
+
+        // When
+        postService.deletePost(postID);
+
+        // Then
+        verify(postSearchService).remove(postID);
+    }
+
+    @Test
+    @DisplayName("Find post response by ID from cache")
+    @Order(19)
+    void findPostResponseByIdCached() {
+        // Given
+        String postID = postDTO.getId();
+        byte[] cached = "{}".getBytes();
+        given(viewCountService.getRecordedViews(postID)).willReturn(4L);
+        given(postResponseCache.get(postID, 5L)).willReturn(cached);
+
+        // When
+        byte[] actual = postService.findPostResponseByID(postID);
+
+        // Then
+        assertArrayEquals(cached, actual);
+        verify(viewCountService).recordView(postID);
+        verify(postRepository, never()).findById(postID);
+    }
+
+    @Test
+    @DisplayName("Find post response by ID not cached")
+    @Order(20)
+    void findPostResponseByIdNotCached() {
+        // Given
+        String postID = postDTO.getId();
+        byte[] serialized = "{}".getBytes();
+        given(postResponseCache.generation(postID)).willReturn(3L);
+        given(postRepository.findById(postID)).willReturn(Optional.of(post));
+        given(postResponseCache.put(any(PostDTO.class), eq(0L), eq(3L))).willReturn(serialized);
+
+        // When
+        byte[] actual = postService.findPostResponseByID(postID);
+
+        // Then
+        assertArrayEquals(serialized, actual);
+        verify(viewCountService).recordView(postID);
+        // Generation is taken before the post is read, so an invalidate in between keeps it out of cache
+        InOrder inOrder = inOrder(postResponseCache, postRepository);
+        inOrder.verify(postResponseCache).generation(postID);
+        inOrder.verify(postRepository).findById(postID);
+    }
+
+    @Test
+    @DisplayName("Edit post invalidate cached response")
+    @Order(21)
+    void editPostInvalidateResponse() {
+        // Given
+        given(postRepository.findById(postDTO.getId())).willReturn(Optional.of(post));
+        given(postRepository.saveAndFlush(any(Post.class))).willReturn(post);
+
+        // When
+        postService.editPost(postDTO);
+
+        // Then
+        verify(postResponseCache).invalidate(postDTO.getId());
+    }
+
+    @Test
+    @DisplayName("Find post modify date from cached response")
+    @Order(22)
+    void findPostModifyDateCached() {
+        // Given
+        String postID = postDTO.getId();
+        LocalDateTime modifyDate = LocalDateTime.of(2022, 8, 1, 10, 0);
+        given(postResponseCache.getModifyDate(postID)).willReturn(modifyDate);
+
+        // When
+        LocalDateTime actual = postService.findPostModifyDate(postID);
+
+        // Then
+        assertEquals(modifyDate, actual);
+        verify(postRepository, never()).findModifyDateById(postID);
+    }
 }
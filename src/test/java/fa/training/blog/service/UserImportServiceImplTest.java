@@ -0,0 +1,135 @@
+package fa.training.blog.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fa.training.blog.entity.User;
+import fa.training.blog.mapper.DtoMapper;
+import fa.training.blog.model.ResponseObject;
+import fa.training.blog.repository.UserRepository;
+import fa.training.blog.security.BoundedPasswordEncoder;
+import fa.training.blog.service.impl.UserImportServiceImpl;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class UserImportServiceImplTest {
+    @InjectMocks
+    private UserImportServiceImpl userImportService;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private UserNameIndexService userNameIndexService;
+    @Spy
+    private DtoMapper dtoMapper;
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    private BoundedPasswordEncoder passwordEncoder;
+    private List<ResponseObject> reported;
+
+    @BeforeEach
+    public void init() {
+        // Low BCrypt strength to keep test fast
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 10);
+        ReflectionTestUtils.setField(userImportService, "passwordEncoder", passwordEncoder);
+        ReflectionTestUtils.setField(userImportService, "validator",
+                Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(userImportService, "batchSize", 2);
+        reported = new ArrayList<>();
+    }
+
+    @AfterEach
+    public void teardown() {
+        passwordEncoder.shutdown();
+    }
+
+    @Test
+    @DisplayName("Import newline-delimited JSON users with rejects")
+    @Order(1)
+    @SuppressWarnings("unchecked")
+    void importJsonUsers() {
+        // Given
+        String input = user("alice", "password123", "alice@mail.com") + "\n"
+                + "{not a user\n"
+                + user("alice", "password123", "other@mail.com") + "\n"
+                + user("bob", "password123", "bob@mail.com") + "\n"
+                + user("carol", "short", "carol@mail.com") + "\n";
+        given(userRepository.findExistingUsernames(any())).willAnswer(invocation ->
+                ((Collection<String>) invocation.getArgument(0)).stream()
+                        .filter("bob"::equals)
+                        .collect(Collectors.toList()));
+        given(userRepository.findExistingEmails(any())).willReturn(List.of());
+
+        // When
+        Map<String, Integer> counts = userImportService.importUsers(new StringReader(input), false, reported::add);
+
+        // Then
+        assertEquals(Map.of("read", 5, "imported", 1, "rejected", 4), counts);
+        List<String> rejects = reported.stream()
+                .filter(line -> !"200".equals(line.getCode()))
+                .map(line -> line.getCode() + " " + line.getMessage())
+                .collect(Collectors.toList());
+        // Users of a batch are validated before usernames and emails are checked in database
+        assertEquals(4, rejects.size());
+        assertEquals("406 Line 2: Cannot read user", rejects.get(0));
+        assertEquals("405 Line 3: Username existed", rejects.get(1));
+        assertTrue(rejects.get(2).startsWith("406 Line 5: password"));
+        assertEquals("405 Line 4: Username existed", rejects.get(3));
+        // Counts are reported after the first full batch
+        assertTrue(reported.stream().anyMatch(line -> "200".equals(line.getCode())));
+        ArgumentCaptor<List<User>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(userRepository).persistAll(inserted.capture());
+        assertEquals(1, inserted.getValue().size());
+        assertEquals("alice", inserted.getValue().get(0).getUsername());
+        assertTrue(passwordEncoder.matches("password123", inserted.getValue().get(0).getPassword()));
+    }
+
+    @Test
+    @DisplayName("Import CSV users with columns in any order")
+    @Order(2)
+    @SuppressWarnings("unchecked")
+    void importCsvUsers() {
+        // Given
+        String input = "email,username,password,firstName,lastName,role\n"
+                + "dave@mail.com,dave,password123,Dave,\"Smith, \"\"Jr\"\"\",ROLE_USER\n";
+        given(userRepository.findExistingUsernames(any())).willReturn(List.of());
+        given(userRepository.findExistingEmails(any())).willReturn(List.of());
+
+        // When
+        Map<String, Integer> counts = userImportService.importUsers(new StringReader(input), true, reported::add);
+
+        // Then
+        assertEquals(Map.of("read", 1, "imported", 1, "rejected", 0), counts);
+        ArgumentCaptor<List<User>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(userRepository).persistAll(inserted.capture());
+        User user = inserted.getValue().get(0);
+        assertEquals("dave", user.getUsername());
+        assertEquals("dave@mail.com", user.getEmail());
+        assertEquals("Smith, \"Jr\"", user.getLastName());
+        verify(userNameIndexService).put("dave", "Dave", "Smith, \"Jr\"", "ROLE_USER");
+    }
+
+    private String user(String username, String password, String email) {
+        return "{\"username\":\"" + username + "\",\"password\":\"" + password + "\",\"email\":\"" + email
+                + "\",\"firstName\":\"First\",\"lastName\":\"Last\",\"role\":\"ROLE_USER\"}";
+    }
+}
@@ -0,0 +1,75 @@
+package fa.training.blog.service;
+
+import fa.training.blog.service.impl.UserNameIndexServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UserNameIndexServiceImplTest {
+    private static final Pageable PAGEABLE = PageRequest.of(0, 10);
+
+    private UserNameIndexServiceImpl userNameIndexService;
+
+    @BeforeEach
+    void setUp() {
+        userNameIndexService = new UserNameIndexServiceImpl();
+        userNameIndexService.put("nguyen", "Nguyễn", "Văn An", "ROLE_USER");
+        userNameIndexService.put("duc", "Đức", "Trần", "ROLE_USER");
+        userNameIndexService.put("admin", "Admin", "Nguyen", "ROLE_ADMIN");
+    }
+
+    @Test
+    @DisplayName("Find by part of name ignore case and accents")
+    @Order(1)
+    void findIgnoreCaseAndAccents() {
+        assertEquals(List.of("nguyen"), userNameIndexService.find("NGUY", null, PAGEABLE));
+        assertEquals(List.of("duc"), userNameIndexService.find("duc", null, PAGEABLE));
+        assertEquals(List.of("nguyen"), userNameIndexService.find(null, "van", PAGEABLE));
+    }
+
+    @Test
+    @DisplayName("Find by short part of name")
+    @Order(2)
+    void findShortPart() {
+        // Less than 3 letters cannot use trigrams, all users are checked
+        assertEquals(List.of("admin", "nguyen"), userNameIndexService.find("n", null, PAGEABLE));
+    }
+
+    @Test
+    @DisplayName("Find by first name and last name")
+    @Order(3)
+    void findFirstNameAndLastName() {
+        assertEquals(List.of("admin"), userNameIndexService.find("adm", "nguyen", PAGEABLE));
+        assertTrue(userNameIndexService.find("duc", "nguyen", PAGEABLE).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Find sorted by role and username and paged")
+    @Order(4)
+    void findSortedAndPaged() {
+        assertEquals(List.of("admin", "duc"), userNameIndexService.find("", null, PageRequest.of(0, 2)));
+        assertEquals(List.of("nguyen"), userNameIndexService.find("", null, PageRequest.of(1, 2)));
+    }
+
+    @Test
+    @DisplayName("Edited and removed users are updated in index")
+    @Order(5)
+    void putAndRemove() {
+        // When
+        userNameIndexService.put("nguyen", "Minh", "Lê", "ROLE_USER");
+        userNameIndexService.remove("duc");
+
+        // Then
+        assertTrue(userNameIndexService.find("nguy", null, PAGEABLE).isEmpty());
+        assertEquals(List.of("nguyen"), userNameIndexService.find("minh", null, PAGEABLE));
+        assertTrue(userNameIndexService.find("duc", null, PAGEABLE).isEmpty());
+    }
+}
@@ -3,7 +3,9 @@ package fa.training.blog.service;
 import fa.training.blog.dto.UserDTO;
 import fa.training.blog.entity.User;
 import fa.training.blog.exception.MyException;
+import fa.training.blog.mapper.DtoMapper;
 import fa.training.blog.repository.UserRepository;
+import fa.training.blog.security.PrincipalCache;
 import fa.training.blog.service.impl.UserServiceImpl;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,7 +13,6 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.*;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
@@ -22,6 +23,9 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 public class UserServiceImplTest {
@@ -30,9 +34,13 @@ public class UserServiceImplTest {
     @Mock
     private UserRepository userRepository;
     @Spy
-    private ModelMapper modelMapper;
+    private DtoMapper dtoMapper;
     @Spy
     private BCryptPasswordEncoder passwordEncoder;
+    @Mock
+    private PrincipalCache principalCache;
+    @Mock
+    private UserNameIndexService userNameIndexService;
 
     private static UserDTO userDTO;
     private static List<UserDTO> userDTOS;
@@ -55,7 +63,7 @@ public class UserServiceImplTest {
 
     @BeforeEach
     public void init() {
-        user = modelMapper.map(userDTO, User.class);
+        user = dtoMapper.toUser(userDTO);
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         users.add(user);
     }
@@ -70,13 +78,13 @@ public class UserServiceImplTest {
     @Order(1)
     void createUserSuccess() {
         // Given
-        given(userRepository.findById(userDTO.getUsername())).willReturn(Optional.empty());
+        given(userRepository.existsById(userDTO.getUsername())).willReturn(false);
         given(userRepository.findByEmail(userDTO.getEmail())).willReturn(null);
         given(userRepository.save(any(User.class))).willReturn(user);
 
         // when
         UserDTO actual = userService.createUser(userDTO);
-        UserDTO expected = modelMapper.map(user, UserDTO.class);
+        UserDTO expected = dtoMapper.toUserDTO(user);
 
         // then
         assertEquals(expected.getUsername(), actual.getUsername());
@@ -90,7 +98,7 @@ public class UserServiceImplTest {
     @Order(2)
     void createUserThrowExceptionUsernameExisted() {
         // Given
-        given(userRepository.findById(userDTO.getUsername())).willReturn(Optional.of(user));
+        given(userRepository.existsById(userDTO.getUsername())).willReturn(true);
 
         // when
         MyException exception = assertThrows(MyException.class, () -> userService.createUser(userDTO));
@@ -105,7 +113,7 @@ public class UserServiceImplTest {
     @Order(3)
     void createUserThrowExceptionEmailUsed() {
         // Given
-        given(userRepository.findById(userDTO.getUsername())).willReturn(Optional.empty());
+        given(userRepository.existsById(userDTO.getUsername())).willReturn(false);
         given(userRepository.findByEmail(userDTO.getEmail())).willReturn(user);
 
         // when
@@ -127,9 +135,10 @@ public class UserServiceImplTest {
 
         // when
         UserDTO actual = userService.deleteUserByUsername(username);
-        UserDTO expected = modelMapper.map(user, UserDTO.class);
+        UserDTO expected = dtoMapper.toUserDTO(user);
 
         // then
+        verify(principalCache).evict(username);
         assertEquals(expected.getUsername(), actual.getUsername());
         assertEquals(expected.getPassword(), actual.getPassword());
         assertEquals(expected.getEmail(), actual.getEmail());
@@ -167,15 +176,35 @@ public class UserServiceImplTest {
 
         // when
         UserDTO actual = userService.editUser(userDTO);
-        UserDTO expected = modelMapper.map(user, UserDTO.class);
+        UserDTO expected = dtoMapper.toUserDTO(user);
 
         // then
+        verify(principalCache).evict(userDTO.getUsername());
         assertEquals(expected.getUsername(), actual.getUsername());
         assertEquals(expected.getPassword(), actual.getPassword());
         assertEquals(expected.getEmail(), actual.getEmail());
         assertEquals(expected.getRole(), actual.getRole());
     }
 
+    @Test
+    @DisplayName("Edit user with unchanged password does not encode it again")
+    @Order(6)
+    void editUserUnchangedPassword() {
+        // Given
+        UserDTO userToEdit = new UserDTO("tester", user.getPassword(), "tester@demo.com",
+                "Test", "Ter", "ROLE_USER");
+        given(userRepository.findById(userToEdit.getUsername())).willReturn(Optional.of(user));
+        given(userRepository.saveAndFlush(any(User.class))).willReturn(user);
+        clearInvocations(passwordEncoder);
+
+        // when
+        UserDTO actual = userService.editUser(userToEdit);
+
+        // then
+        verify(passwordEncoder, never()).encode(any());
+        assertEquals(user.getPassword(), actual.getPassword());
+    }
+
     @Test
     @DisplayName("Delete user by username throw MyException \"Username not found\"")
     @Order(7)
@@ -215,16 +244,16 @@ public class UserServiceImplTest {
     @Order(9)
     void findAllUser() {
         // Given
-        Page<User> page = new PageImpl<>(users);
-        given(userRepository.findAll(pageable)).willReturn(page);
+        Slice<User> page = new SliceImpl<>(users);
+        given(userRepository.findAllBy(pageable)).willReturn(page);
 
         // when
-        List<UserDTO> actual = userService.findAllUser(pageable);
+        Slice<UserDTO> actual = userService.findAllUser(pageable);
 
         // then
-        assertEquals(userDTOS.get(0).getUsername(), actual.get(0).getUsername());
-        assertEquals(userDTOS.get(0).getClass(), actual.get(0).getClass());
-        assertEquals(userDTOS.size(), actual.size());
+        assertEquals(userDTOS.get(0).getUsername(), actual.getContent().get(0).getUsername());
+        assertEquals(userDTOS.get(0).getClass(), actual.getContent().get(0).getClass());
+        assertEquals(userDTOS.size(), actual.getNumberOfElements());
     }
 
     @Test
@@ -232,15 +261,16 @@ public class UserServiceImplTest {
     @Order(10)
     void findAllUserEmpty() {
         // Given
-        Page<User> page = new PageImpl<>(new ArrayList<>());
+        Slice<User> page = new SliceImpl<>(new ArrayList<>());
 
-        given(userRepository.findAll(pageable)).willReturn(page);
+        given(userRepository.findAllBy(pageable)).willReturn(page);
 
         // when
-        List<UserDTO> actual = userService.findAllUser(pageable);
+        Slice<UserDTO> actual = userService.findAllUser(pageable);
 
         // then
-        assertEquals(0, actual.size());
+        assertEquals(0, actual.getNumberOfElements());
+        assertFalse(actual.hasNext());
     }
 
     @Test
@@ -250,11 +280,12 @@ public class UserServiceImplTest {
         // Given
         String firstName = userDTO.getFirstName();
 
-        given(userRepository.findByFirstNameIgnoreCaseContains(firstName, pageable)).willReturn(users);
+        given(userNameIndexService.find(firstName, null, pageable)).willReturn(List.of(user.getUsername()));
+        given(userRepository.findAllById(List.of(user.getUsername()))).willReturn(users);
 
         // when
         List<UserDTO> actual = userService.findUserByFirstName(firstName, pageable);
-        UserDTO expectedUser = modelMapper.map(user, UserDTO.class);
+        UserDTO expectedUser = dtoMapper.toUserDTO(user);
         List<UserDTO> expected = List.of(expectedUser);
 
         // then
@@ -270,11 +301,12 @@ public class UserServiceImplTest {
         // Given
         String lastName = userDTO.getLastName();
 
-        given(userRepository.findByLastNameIgnoreCaseContains(lastName, pageable)).willReturn(users);
+        given(userNameIndexService.find(null, lastName, pageable)).willReturn(List.of(user.getUsername()));
+        given(userRepository.findAllById(List.of(user.getUsername()))).willReturn(users);
 
         // when
         List<UserDTO> actual = userService.findUserByLastName(lastName, pageable);
-        UserDTO expectedUser = modelMapper.map(user, UserDTO.class);
+        UserDTO expectedUser = dtoMapper.toUserDTO(user);
         List<UserDTO> expected = List.of(expectedUser);
 
         // then
@@ -291,12 +323,12 @@ public class UserServiceImplTest {
         String firstName = userDTO.getFirstName();
         String lastName =  userDTO.getLastName();
 
-        given(userRepository.findByFirstNameIgnoreCaseContainsAndLastNameIgnoreCaseContains(firstName, lastName, pageable))
-                .willReturn(users);
+        given(userNameIndexService.find(firstName, lastName, pageable)).willReturn(List.of(user.getUsername()));
+        given(userRepository.findAllById(List.of(user.getUsername()))).willReturn(users);
 
         // when
         List<UserDTO> actual = userService.findUserByFirstNameAndLastName(firstName, lastName, pageable);
-        UserDTO expectedUser = modelMapper.map(user, UserDTO.class);
+        UserDTO expectedUser = dtoMapper.toUserDTO(user);
         List<UserDTO> expected = List.of(expectedUser);
 
         // then
@@ -304,4 +336,19 @@ public class UserServiceImplTest {
         assertEquals(expected.get(0).getPassword(), actual.get(0).getPassword());
         assertEquals(expected.size(), actual.size());
     }
+
+    @Test
+    @DisplayName("Find user by first name not in index")
+    @Order(14)
+    void findUserByFirstNameNotFound() {
+        // Given
+        given(userNameIndexService.find("Nobody", null, pageable)).willReturn(List.of());
+
+        // when
+        List<UserDTO> actual = userService.findUserByFirstName("Nobody", pageable);
+
+        // then
+        assertEquals(0, actual.size());
+        verify(userRepository, never()).findAllById(any());
+    }
 }
@@ -0,0 +1,166 @@
+package fa.training.blog.service;
+
+import fa.training.blog.entity.Post;
+import fa.training.blog.service.impl.ViewCountServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class ViewCountServiceImplTest {
+    @InjectMocks
+    private ViewCountServiceImpl viewCountService;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+    @Mock
+    private Cache cache;
+    @Mock
+    private PostResponseCache postResponseCache;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.setTransactionManager(transactionManager);
+    }
+
+    @Test
+    @DisplayName("Record views keep them pending")
+    @Order(1)
+    void recordViewPending() {
+        // When
+        viewCountService.recordView("Post ID");
+        viewCountService.recordView("Post ID");
+
+        // Then
+        assertEquals(2, viewCountService.getPendingViews("Post ID"));
+        assertEquals(0, viewCountService.getPendingViews("Other post ID"));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("Flush write pending views in one batch")
+    @Order(2)
+    @SuppressWarnings("unchecked")
+    void flushWriteBatch() {
+        // Given
+        viewCountService.recordView("Post ID");
+        viewCountService.recordView("Post ID");
+        viewCountService.recordView("Post ID");
+        given(entityManagerFactory.getCache()).willReturn(cache);
+
+        // When
+        viewCountService.flush();
+
+        // Then
+        ArgumentCaptor<List<Object[]>> batchArgs = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batchArgs.capture());
+        assertEquals(1, batchArgs.getValue().size());
+        assertArrayEquals(new Object[]{3L, "Post ID"}, batchArgs.getValue().get(0));
+        assertEquals(0, viewCountService.getPendingViews("Post ID"));
+        // Cached post has old view
+        verify(cache).evict(Post.class, "Post ID");
+    }
+
+    @Test
+    @DisplayName("Flush fail keep pending views")
+    @Order(3)
+    void flushFailKeepPending() {
+        // Given
+        viewCountService.recordView("Post ID");
+        given(jdbcTemplate.batchUpdate(anyString(), anyList())).willThrow(new DataAccessResourceFailureException("Down"));
+
+        // When
+        viewCountService.flush();
+
+        // Then
+        assertEquals(1, viewCountService.getPendingViews("Post ID"));
+        // Nothing of the batch stays written
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    @DisplayName("Discard drop pending views")
+    @Order(4)
+    void discardPendingViews() {
+        // Given
+        viewCountService.recordView("Post ID");
+
+        // When
+        viewCountService.discard("Post ID");
+        viewCountService.flush();
+
+        // Then
+        assertEquals(0, viewCountService.getPendingViews("Post ID"));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("Flush remove counter of post not viewed since last flush")
+    @Order(5)
+    void flushRemoveIdleCounter() {
+        // Given
+        viewCountService.recordView("Post ID");
+        viewCountService.recordView("Post ID");
+        given(entityManagerFactory.getCache()).willReturn(cache);
+        viewCountService.flush();
+
+        // When
+        viewCountService.flush();
+
+        // Then
+        assertEquals(0, viewCountService.getRecordedViews("Post ID"));
+        verify(postResponseCache).rebase("Post ID", 2);
+        // Next view is counted on a new counter
+        viewCountService.recordView("Post ID");
+        assertEquals(1, viewCountService.getRecordedViews("Post ID"));
+        assertEquals(1, viewCountService.getPendingViews("Post ID"));
+    }
+
+    @Test
+    @DisplayName("Flush keep counter of post viewed since last flush")
+    @Order(6)
+    void flushKeepViewedCounter() {
+        // Given
+        viewCountService.recordView("Post ID");
+        given(entityManagerFactory.getCache()).willReturn(cache);
+        viewCountService.flush();
+        viewCountService.recordView("Post ID");
+
+        // When
+        viewCountService.flush();
+
+        // Then
+        assertEquals(2, viewCountService.getRecordedViews("Post ID"));
+        verify(postResponseCache, never()).rebase(anyString(), anyLong());
+    }
+}
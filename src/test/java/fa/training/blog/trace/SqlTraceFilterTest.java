@@ -0,0 +1,83 @@
+package fa.training.blog.trace;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class SqlTraceFilterTest {
+    private static final SqlTraceListener SQL_TRACE_LISTENER = new SqlTraceListener(Duration.ofMillis(200));
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void init() {
+        SqlTraceFilter sqlTraceFilter = new SqlTraceFilter();
+        ReflectionTestUtils.setField(sqlTraceFilter, "logRequests", true);
+        SqlTraceResponseAdvice sqlTraceResponseAdvice = new SqlTraceResponseAdvice();
+        ReflectionTestUtils.setField(sqlTraceResponseAdvice, "responseHeader", true);
+        // Filter, controller and advice run as in the application, headers are written by MVC
+        mockMvc = MockMvcBuilders.standaloneSetup(new QueryController())
+                .setControllerAdvice(sqlTraceResponseAdvice)
+                .addFilters(sqlTraceFilter)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Count queries of a request in response headers")
+    @Order(1)
+    void countQueriesOfRequest() throws Exception {
+        // When
+        mockMvc.perform(get("/queries"))
+                // Then
+                .andExpect(status().isOk())
+                .andExpect(header().string(SqlTraceResponseAdvice.QUERY_COUNT_HEADER, "2"))
+                .andExpect(header().string(SqlTraceResponseAdvice.QUERY_TIME_HEADER, "253"));
+        // Trace ends with the request
+        assertNull(SqlTrace.current());
+    }
+
+    @Test
+    @DisplayName("Query outside of a request is not traced")
+    @Order(2)
+    void queryOutsideRequest() {
+        // When
+        runQuery("update post set view = view + 1", 1);
+
+        // Then
+        assertNull(SqlTrace.current());
+    }
+
+    private static void runQuery(String sql, long elapsedMillis) {
+        ExecutionInfo executionInfo = new ExecutionInfo();
+        executionInfo.setElapsedTime(elapsedMillis);
+        SQL_TRACE_LISTENER.afterQuery(executionInfo, List.of(new QueryInfo(sql)));
+    }
+
+    // Runs two statements, as the DataSource proxy would report them
+    @RestController
+    static class QueryController {
+        @GetMapping("/queries")
+        public Map<String, String> queries() {
+            runQuery("select * from post", 3);
+            runQuery("select * from user", 250);
+            return Map.of("result", "ok");
+        }
+    }
+}
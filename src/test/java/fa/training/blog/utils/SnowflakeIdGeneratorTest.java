@@ -0,0 +1,64 @@
+package fa.training.blog.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SnowflakeIdGeneratorTest {
+    @Test
+    @DisplayName("IDs are unique and sorted in the same millisecond")
+    @Order(1)
+    void sortedInSameMillisecond() {
+        // Given
+        Clock clock = Clock.fixed(Instant.parse("2022-08-01T10:00:00Z"), ZoneOffset.UTC);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock);
+
+        // When
+        List<String> ids = new ArrayList<>();
+        // More than 4096 IDs, so sequence of the millisecond overflows
+        for (int i = 0; i < 10000; i++) {
+            ids.add(generator.nextId());
+        }
+
+        // Then
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertEquals(SnowflakeIdGenerator.LENGTH, ids.get(i).length());
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0);
+        }
+    }
+
+    @Test
+    @DisplayName("IDs are sorted by time before worker")
+    @Order(2)
+    void sortedByTime() {
+        // Given
+        long time = Instant.parse("2022-08-01T10:00:00Z").toEpochMilli();
+
+        // When
+        String earlier = SnowflakeIdGenerator.compose(time, SnowflakeIdGenerator.MAX_WORKER_ID, 4095);
+        String later = SnowflakeIdGenerator.compose(time + 1, 0, 0);
+
+        // Then
+        assertTrue(earlier.compareTo(later) < 0);
+    }
+
+    @Test
+    @DisplayName("Worker ID reserved for migration is rejected")
+    @Order(3)
+    void reservedWorkerId() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MIGRATED_WORKER_ID, Clock.systemUTC()));
+    }
+}